@@ -0,0 +1,39 @@
+package com.rey.slidelayout;
+
+/**
+ * Offset a pointer has dragged a menu to, followed sample by sample and clamped at menu's borders after each one. 
+ * Keeps the fraction of a pixel not applied to the menu yet.
+ */
+final class DragAccumulator {
+	
+	// negative if not known
+	private float mPosition = -1f;
+	
+	void reset(){
+		mPosition = -1f;
+	}
+	
+	/**
+	 * Start from menu's offset, unless it's where the accumulated position already is.
+	 */
+	void sync(int offset){
+		if(mPosition < 0 || (int)mPosition != offset)
+			mPosition = offset;
+	}
+	
+	/**
+	 * Add the movement of one sample.
+	 * @param max highest offset menu can be dragged to
+	 */
+	void move(float distance, int max){
+		mPosition = Math.min(max, Math.max(0, mPosition + distance));
+	}
+	
+	/**
+	 * @return whole pixel offset dragged to.
+	 */
+	int getOffset(){
+		return (int)mPosition;
+	}
+	
+}
@@ -0,0 +1,56 @@
+package com.rey.slidelayout;
+
+/**
+ * Histogram of intervals between frames, and number of 60fps frames missed between them. Times are in nanoseconds.
+ */
+final class FrameHistogram {
+	
+	// upper bounds (exclusive) of frame interval buckets in milliseconds, the last bucket is unbounded
+	static final int[] BUCKET_BOUNDS = {8, 17, 25, 34, 50, 100};
+	static final long FRAME_INTERVAL = 16666667L;
+	
+	private final int[] mBuckets = new int[BUCKET_BOUNDS.length + 1];
+	private int mFrameCount;
+	private int mDroppedFrames;
+	private long mLastFrameTime;
+	
+	void reset(){
+		for(int i = 0; i < mBuckets.length; i++)
+			mBuckets[i] = 0;
+		
+		mFrameCount = 0;
+		mDroppedFrames = 0;
+		mLastFrameTime = 0;
+	}
+	
+	void onFrame(long time){
+		if(mLastFrameTime > 0){
+			long interval = time - mLastFrameTime;
+			int ms = (int)(interval / 1000000L);
+			int bucket = 0;
+			while(bucket < BUCKET_BOUNDS.length && ms >= BUCKET_BOUNDS[bucket])
+				bucket++;
+			
+			mBuckets[bucket]++;
+			mFrameCount++;
+			
+			if(interval > FRAME_INTERVAL * 3 / 2)
+				mDroppedFrames += (int)((interval + FRAME_INTERVAL / 2) / FRAME_INTERVAL) - 1;
+		}
+		
+		mLastFrameTime = time;
+	}
+	
+	int getFrameCount(int bucket){
+		return mBuckets[bucket];
+	}
+	
+	int getFrameCount(){
+		return mFrameCount;
+	}
+	
+	int getDroppedFrames(){
+		return mDroppedFrames;
+	}
+	
+}
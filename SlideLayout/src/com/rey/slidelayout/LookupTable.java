@@ -0,0 +1,30 @@
+package com.rey.slidelayout;
+
+/**
+ * Samples of a function on [0, 1], evaluated by linear interpolation between samples.
+ */
+final class LookupTable {
+	
+	static final int SAMPLES = 256;
+	
+	private final float[] mValues = new float[SAMPLES + 1];
+	
+	/**
+	 * Set value of function at input sample / {@link #SAMPLES}.
+	 */
+	void set(int sample, float value){
+		mValues[sample] = value;
+	}
+	
+	float get(float input){
+		if(input <= 0f)
+			return mValues[0];
+		if(input >= 1f)
+			return mValues[SAMPLES];
+		
+		float position = input * SAMPLES;
+		int index = (int)position;
+		return mValues[index] + (mValues[index + 1] - mValues[index]) * (position - index);
+	}
+	
+}
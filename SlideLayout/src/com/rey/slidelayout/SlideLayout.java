@@ -1,27 +1,53 @@
 package com.rey.slidelayout;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.content.ComponentCallbacks;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.view.GestureDetector;
+import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.Animation;
+import android.view.ViewParent;
+import android.view.ViewStub;
+import android.view.VelocityTracker;
 import android.view.animation.AnimationUtils;
 import android.view.animation.Interpolator;
-import android.view.animation.Transformation;
 import android.widget.FrameLayout;
 
 public class SlideLayout extends FrameLayout {
-		
-	private int mAction;
-	private int mTarget;
+	
+	// packed action and target, the only copy of current state. Read from any thread, changed by compare-and-set
+	private final AtomicInteger mState = new AtomicInteger(getState(ACTION_SHOW, TARGET_CONTENT));
 	
 	public static final int ACTION_SHOW = 0x00;
 	public static final int ACTION_OPEN = 0x01;	
@@ -53,25 +79,112 @@ public class SlideLayout extends FrameLayout {
 	private MenuStyle mBottomMenuStyle;
 	
 	private int mOverlayChild = -1;
-	private int mLeftShadowChild = -1;
-	private int mRightShadowChild = -1;
-	private int mTopShadowChild = -1;
-	private int mBottomShadowChild = -1;
 	
 	private int mContentChild = -1;	
-	private int mTotalChild = 0;
 	private int mOffsetX = 0;
 	private int mOffsetY = 0;
 	private boolean mDragEnable = true;	
-	private Interpolator mInterpolator;
+	
+	private ColorDrawable mDimDrawable;
+	private int mDimAlpha = -1;
+	
+	private boolean mCanvasScrim = false;
+	
+	private boolean mSnapshotDrag = false;
+	private Bitmap mSnapshot;
+	
+	private boolean mTranslationMode = false;
+	
+	// part of a child that isn't covered by the opaque menu or content above it
+	private static final int EXPOSED_NONE = 0;
+	private static final int EXPOSED_PART = 1;
+	private static final int EXPOSED_ALL = 2;
+	private final Rect mExposedRect = new Rect();
+	
+	private boolean mDebugOverdraw = false;
+	private Paint mDebugPaint;
+	private StringBuilder mDebugText;
+	private long mDrawnArea;
+	private float mOverdrawFactor;
+	
+	private boolean mPreInflateMenus = false;
+	private Runnable mPreInflateRunnable;
+	
+	// one worker shared by all SlideLayouts. When the queue is full, request is dropped and menu is inflated on demand.
+	private static final int MAX_PENDING_INFLATION = 4;
+	private static ThreadPoolExecutor sInflateExecutor;
+	private static Handler sMainHandler;
+	
+	/**
+	 * Closed menu stays attached.
+	 */
+	public static final int RETAIN_KEEP = 0;
+	/**
+	 * Closed menu is removed from SlideLayout but kept in memory, it's attached again when revealed.
+	 */
+	public static final int RETAIN_DETACH = 1;
+	/**
+	 * Closed menu is dropped after saving its state, it's created again and restored when revealed. 
+	 * Only menus created by a {@link MenuFactory}, a layout or a ViewStub can be destroyed, the others are detached instead.
+	 */
+	public static final int RETAIN_DESTROY = 2;
+	
+	private ComponentCallbacks mTrimCallbacks;
+	private Paint mScrimPaint;
+	private Rect mScrimRect;
+	
+	private int mLayerTarget = TARGET_CONTENT;
+	private int mContentLayerType;
+	private int mMenuLayerType;
+	private int mLayerPromotionCount = 0;
+	private int mLayoutPassCount = 0;
+	
+	// target and offset children were last moved to, -1 target when unknown (after a layout or state change)
+	private int mAppliedTarget = -1;
+	private int mAppliedOffset;
+	private final Rect mDirtyRect = new Rect();
+	private int mOffsetUpdateCount = 0;
+	private int mOffsetSkipCount = 0;
+	
+	private SlideAnimator mSlideAnimator = new SlideAnimator();
+	
+	private static final long FRAME_DELAY = 10;
+	
 		
 	private float mDownX = -1;
 	private float mDownY = -1;
+	// position of active pointer at the last handled event
 	private float mPrevX;
 	private float mPrevY;
-	private float mDisX;
-	private float mDisY;
-	private boolean mStartDrag = false;
+	private float mDragDistance;
+	// offset the pointer has dragged menu to
+	private final DragAccumulator mDragPosition = new DragAccumulator();
+	// edge dragged by the moves received since last frame
+	private Edge mPendingDragEdge;
+	private boolean mDragFramePending = false;
+	private final Runnable mDragFrameRunnable = new Runnable() {		
+		@Override
+		public void run() {
+			mDragFramePending = false;
+			flushDrag();
+		}
+	};
+	private Edge mDownEdge;
+	
+	// directions of pointer movement a layout may start dragging with, claimed at DOWN of each gesture
+	private static final int DRAG_RIGHT = 0x01;
+	private static final int DRAG_LEFT = 0x02;
+	private static final int DRAG_DOWN = 0x04;
+	private static final int DRAG_UP = 0x08;
+	private int mClaimedDirections = 0;
+	// nested SlideLayout under the pointer that claimed directions or has such a nested SlideLayout itself
+	private SlideLayout mNestedChild;
+	// a child took the gesture by requestDisallowInterceptTouchEvent
+	private boolean mDragDisallowed = false;
+	
+	private static final int INVALID_POINTER = -1;
+	private int mActivePointerId = INVALID_POINTER;
+	private VelocityTracker mVelocityTracker;
 	
 	public interface OnStateChangedListener{
 		public void onStateChanged(View v, int old_state, int new_state);
@@ -80,33 +193,86 @@ public class SlideLayout extends FrameLayout {
 	}
 	
 	private WeakReference<OnStateChangedListener> mStateListener;
+	
+	private static final OnStateChangedListener[] EMPTY_LISTENERS = new OnStateChangedListener[0];
+	// copy-on-write, so dispatching never allocates and listeners can unregister while being notified
+	private OnStateChangedListener[] mStateListeners = EMPTY_LISTENERS;
+	
+	private boolean mOffsetEventPending = false;
+	private float mPendingOffsetX;
+	private float mPendingOffsetY;
+	private int mPendingOffsetState;
+	
+	public static final int METRICS_GESTURE = 0;
+	public static final int METRICS_ANIMATION = 1;
+	
+	/**
+	 * Receive frame timing of menu drags and animations. 
+	 */
+	public interface MetricsSink{
+		/**
+		 * Called on UI thread when a drag or an open/close animation finishes.
+		 * @param type {@link #METRICS_GESTURE} or {@link #METRICS_ANIMATION}
+		 * @param stats the statistics, this object is reused so copy any value needed after this call returns.
+		 */
+		public void onFrameStats(View v, int type, FrameStats stats);
+	}
+	
+	private MetricsSink mMetricsSink;
+	private final FrameStats mFrameStats = new FrameStats();
+	// type of the gesture or animation being measured, -1 if none
+	private int mMetricsType = -1;
+	
+	private final Runnable mOffsetEventRunnable = new Runnable() {
+		@Override
+		public void run() {
+			deliverOffsetChangedEvent();
+		}
+	};
 		
 	enum OP{
-		START_DRAG_LEFT_FROM_CONTENT, 
-		START_DRAG_RIGHT_FROM_CONTENT, 
-		START_DRAG_TOP_FROM_CONTENT, 
-		START_DRAG_BOTTOM_FROM_CONTENT, 
-		START_DRAG_LEFT_FROM_MENU, 
-		START_DRAG_RIGHT_FROM_MENU, 
-		START_DRAG_TOP_FROM_MENU, 
-		START_DRAG_BOTTOM_FROM_MENU, 
-		DRAG_LEFT_END, 
-		DRAG_RIGHT_END, 
-		DRAG_TOP_END, 
-		DRAG_BOTTOM_END, 
-		FLING_LEFT, 
-		FLING_RIGHT, 
-		FLING_TOP, 
-		FLING_BOTTOM, 
-		OPEN_LEFT,  
-		OPEN_RIGHT, 
-		OPEN_TOP, 
-		OPEN_BOTTOM,
-		CLOSE_LEFT, 
-		CLOSE_RIGHT,
-		CLOSE_TOP,
-		CLOSE_BOTTOM
+		START_DRAG_LEFT_FROM_CONTENT(TARGET_LEFT), 
+		START_DRAG_RIGHT_FROM_CONTENT(TARGET_RIGHT), 
+		START_DRAG_TOP_FROM_CONTENT(TARGET_TOP), 
+		START_DRAG_BOTTOM_FROM_CONTENT(TARGET_BOTTOM), 
+		START_DRAG_LEFT_FROM_MENU(TARGET_LEFT), 
+		START_DRAG_RIGHT_FROM_MENU(TARGET_RIGHT), 
+		START_DRAG_TOP_FROM_MENU(TARGET_TOP), 
+		START_DRAG_BOTTOM_FROM_MENU(TARGET_BOTTOM), 
+		DRAG_LEFT_END(TARGET_LEFT), 
+		DRAG_RIGHT_END(TARGET_RIGHT), 
+		DRAG_TOP_END(TARGET_TOP), 
+		DRAG_BOTTOM_END(TARGET_BOTTOM), 
+		FLING_LEFT(TARGET_LEFT), 
+		FLING_RIGHT(TARGET_RIGHT), 
+		FLING_TOP(TARGET_TOP), 
+		FLING_BOTTOM(TARGET_BOTTOM), 
+		OPEN_LEFT(TARGET_LEFT),  
+		OPEN_RIGHT(TARGET_RIGHT), 
+		OPEN_TOP(TARGET_TOP), 
+		OPEN_BOTTOM(TARGET_BOTTOM),
+		CLOSE_LEFT(TARGET_LEFT), 
+		CLOSE_RIGHT(TARGET_RIGHT),
+		CLOSE_TOP(TARGET_TOP),
+		CLOSE_BOTTOM(TARGET_BOTTOM);
+		
+		/**
+		 * The menu this operation is applied on.
+		 */
+		final int target;
+		
+		OP(int target){
+			this.target = target;
+		}
 	};
+	
+	private final Edge mLeftEdge = new Edge(TARGET_LEFT, true, 1, OP.START_DRAG_LEFT_FROM_CONTENT, OP.START_DRAG_LEFT_FROM_MENU, OP.FLING_LEFT);
+	private final Edge mRightEdge = new Edge(TARGET_RIGHT, true, -1, OP.START_DRAG_RIGHT_FROM_CONTENT, OP.START_DRAG_RIGHT_FROM_MENU, OP.FLING_RIGHT);
+	private final Edge mTopEdge = new Edge(TARGET_TOP, false, 1, OP.START_DRAG_TOP_FROM_CONTENT, OP.START_DRAG_TOP_FROM_MENU, OP.FLING_TOP);
+	private final Edge mBottomEdge = new Edge(TARGET_BOTTOM, false, -1, OP.START_DRAG_BOTTOM_FROM_CONTENT, OP.START_DRAG_BOTTOM_FROM_MENU, OP.FLING_BOTTOM);
+	
+	// the order edges are tested when a touch starts from content
+	private final Edge[] mEdges = {mLeftEdge, mRightEdge, mTopEdge, mBottomEdge};
 		
 	private GestureDetector mGestureDetector;
 	private GestureDetector.OnGestureListener mGestureListener = new GestureDetector.OnGestureListener() {
@@ -170,6 +336,21 @@ public class SlideLayout extends FrameLayout {
 				    case R.styleable.SlideLayoutStyle_sl_dragEnable:
 			        	mDragEnable = a.getBoolean(attr, true);
 			        	break;
+				    case R.styleable.SlideLayoutStyle_sl_canvasScrim:
+			        	mCanvasScrim = a.getBoolean(attr, false);
+			        	break;
+				    case R.styleable.SlideLayoutStyle_sl_snapshotDrag:
+			        	mSnapshotDrag = a.getBoolean(attr, false);
+			        	break;
+				    case R.styleable.SlideLayoutStyle_sl_translationMode:
+			        	mTranslationMode = a.getBoolean(attr, false);
+			        	break;
+				    case R.styleable.SlideLayoutStyle_sl_debugOverdraw:
+			        	mDebugOverdraw = a.getBoolean(attr, false);
+			        	break;
+				    case R.styleable.SlideLayoutStyle_sl_preInflateMenus:
+			        	mPreInflateMenus = a.getBoolean(attr, false);
+			        	break;
 			    	case R.styleable.SlideLayoutStyle_sl_contentChild:
 			    		mContentChild = a.getInt(attr, -1);
 			    		break;   
@@ -205,32 +386,79 @@ public class SlideLayout extends FrameLayout {
 			a.recycle();	
 		}
 		
-		mTotalChild = 0;
-		if(mContentChild >= 0)
-			mTotalChild++;
-		
-		if(mLeftMenuChild >= 0){
+		if(mLeftMenuChild >= 0)
 			mLeftMenuStyle = new MenuStyle(context, leftMenuStyleId > 0 ? leftMenuStyleId : menuStyleId);
-			mTotalChild += 2;
-		}
 				
-		if(mRightMenuChild >= 0){
+		if(mRightMenuChild >= 0)
 			mRightMenuStyle = new MenuStyle(context, rightMenuStyleId > 0 ? rightMenuStyleId : menuStyleId);
-			mTotalChild += 2;
-		}
 		
-		if(mTopMenuChild >= 0){
+		if(mTopMenuChild >= 0)
 			mTopMenuStyle = new MenuStyle(context, topMenuStyleId > 0 ? topMenuStyleId : menuStyleId);
-			mTotalChild += 2;
-		}
 		
-		if(mBottomMenuChild >= 0){
+		if(mBottomMenuChild >= 0)
 			mBottomMenuStyle = new MenuStyle(context, bottomMenuStyleId > 0 ? bottomMenuStyleId : menuStyleId);
-			mTotalChild += 2;
+		
+		init(context);
+	}
+	
+	/**
+	 * Create SlideLayout from a {@link Config}, no style is read.
+	 */
+	public static SlideLayout create(Context context, Config config){
+		return new SlideLayout(config, context);
+	}
+	
+	// parameters are swapped so that new SlideLayout(context, null) isn't ambiguous
+	private SlideLayout(Config config, Context context) {
+		super(context);
+		
+		mDragEnable = config.mDragEnable;
+		mCanvasScrim = config.mCanvasScrim;
+		mPreInflateMenus = config.mPreInflateMenus;
+		mSnapshotDrag = config.mSnapshotDrag;
+		mTranslationMode = config.mTranslationMode;
+		mContentChild = config.mContentChild;
+		
+		MenuConfig menuConfig = config.mMenuConfigs[0];
+		if(menuConfig != null){
+			mLeftMenuChild = config.mMenuChilds[0];
+			mLeftMenuStyle = new MenuStyle(menuConfig.mSpec);
+		}
+		
+		menuConfig = config.mMenuConfigs[1];
+		if(menuConfig != null){
+			mRightMenuChild = config.mMenuChilds[1];
+			mRightMenuStyle = new MenuStyle(menuConfig.mSpec);
+		}
+		
+		menuConfig = config.mMenuConfigs[2];
+		if(menuConfig != null){
+			mTopMenuChild = config.mMenuChilds[2];
+			mTopMenuStyle = new MenuStyle(menuConfig.mSpec);
+		}
+		
+		menuConfig = config.mMenuConfigs[3];
+		if(menuConfig != null){
+			mBottomMenuChild = config.mMenuChilds[3];
+			mBottomMenuStyle = new MenuStyle(menuConfig.mSpec);
 		}
 		
-		if(mTotalChild > 1)
-			mTotalChild++;
+		init(context);
+	}
+	
+	private void init(Context context){
+		mLeftEdge.style = mLeftMenuStyle;
+		mRightEdge.style = mRightMenuStyle;
+		mTopEdge.style = mTopMenuStyle;
+		mBottomEdge.style = mBottomMenuStyle;
+		
+		mTranslationMode = mTranslationMode && android.os.Build.VERSION.SDK_INT >= 11;
+		
+		if(mCanvasScrim){
+			mScrimPaint = new Paint();
+			mScrimPaint.setColor(0xFF000000);
+			mScrimRect = new Rect();
+		}
 				
 		mGestureDetector = new GestureDetector(context, mGestureListener);
 	}
@@ -255,12 +483,7 @@ public class SlideLayout extends FrameLayout {
 		if(params == null)
 			params = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
 		
-		if(getChildCount() == mTotalChild / 2 - 1){
-			super.addView(child, index, params);
-			addShadowView();
-		}
-		else
-			super.addView(child, index, params);		
+		super.addView(child, index, params);		
 	}
 
 	@Override
@@ -297,183 +520,992 @@ public class SlideLayout extends FrameLayout {
 		}
 	}
 	
-	@SuppressLint("NewApi")
-	private void addShadowView(){
-		int count = getChildCount();
+	/**
+	 * Change the style of a menu at runtime. Only sizes affected by the change are computed again.
+	 * @param target one of TARGET_LEFT, TARGET_RIGHT, TARGET_TOP, TARGET_BOTTOM, the menu must be declared already.
+	 */
+	public void setMenuConfig(int target, MenuConfig config){
+		Edge edge = getEdge(target);
+		if(edge == null || edge.style == null)
+			return;
 		
-		View v = new View(getContext());
-		v.setBackgroundColor(0xFF000000);
-		if (android.os.Build.VERSION.SDK_INT > android.os.Build.VERSION_CODES.HONEYCOMB)
-			v.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+		MenuStyle style = edge.style;
+		boolean geometryChanged = style.apply(config.mSpec);
+		invalidate();
+		
+		if(geometryChanged && mViewWidth >= 0){
+			mAppliedTarget = -1;
+			setMenuView(target, mViewWidth, mViewHeight);
+			if(isState(ACTION_SHOW, target))
+				edge.setOffset(style.mSize);
+		}
 		
-		super.addView(v, -1, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+		if(style.mRetainPolicy == RETAIN_KEEP)
+			removeCallbacks(edge.releaseRunnable);
+		else if(getWindowToken() != null)
+			registerTrimCallbacks();
+	}
+	
+	/**
+	 * Configuration of a SlideLayout built in code, see {@link SlideLayout#create(Context, Config)}.
+	 */
+	public static class Config{
+		boolean mDragEnable = true;
+		boolean mCanvasScrim = false;
+		boolean mPreInflateMenus = false;
+		boolean mSnapshotDrag = false;
+		boolean mTranslationMode = false;
+		int mContentChild = -1;
 		
-		mOverlayChild = count;
-		count++;
+		// left, right, top, bottom
+		final int[] mMenuChilds = {-1, -1, -1, -1};
+		final MenuConfig[] mMenuConfigs = new MenuConfig[4];
 		
-		if(getLeftMenuView() != null && mLeftMenuStyle.mMenuShadow > 0){
-			v = new View(getContext());
-			v.setBackgroundResource(mLeftMenuChild > mContentChild ? R.drawable.sm_rightshadow : R.drawable.sm_leftshadow);
-			super.addView(v, -1, new FrameLayout.LayoutParams(mLeftMenuStyle.mMenuShadow, FrameLayout.LayoutParams.MATCH_PARENT));
-			
-			mLeftShadowChild = count;
-			count++;
+		public Config setDragEnable(boolean enable){
+			mDragEnable = enable;
+			return this;
 		}
 		
-		if(getRightMenuView() != null && mRightMenuStyle.mMenuShadow > 0){
-			v = new View(getContext());
-			v.setBackgroundResource(mRightMenuChild > mContentChild ? R.drawable.sm_leftshadow : R.drawable.sm_rightshadow);	
-			super.addView(v, -1, new FrameLayout.LayoutParams(mRightMenuStyle.mMenuShadow, FrameLayout.LayoutParams.MATCH_PARENT));
-			
-			mRightShadowChild = count;
-			count++;
+		public Config setCanvasScrim(boolean enable){
+			mCanvasScrim = enable;
+			return this;
 		}
 		
-		if(getTopMenuView() != null && mTopMenuStyle.mMenuShadow > 0){
-			v = new View(getContext());
-			v.setBackgroundResource(mTopMenuChild > mContentChild ? R.drawable.sm_bottomshadow : R.drawable.sm_topshadow);				
-			super.addView(v, -1, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, mTopMenuStyle.mMenuShadow));
-			
-			mTopShadowChild = count;
-			count++;
+		public Config setPreInflateMenus(boolean enable){
+			mPreInflateMenus = enable;
+			return this;
+		}
+		
+		public Config setSnapshotDrag(boolean enable){
+			mSnapshotDrag = enable;
+			return this;
+		}
+		
+		public Config setTranslationMode(boolean enable){
+			mTranslationMode = enable;
+			return this;
+		}
+		
+		/**
+		 * @param index index of content view in SlideLayout.
+		 */
+		public Config setContentChild(int index){
+			mContentChild = index;
+			return this;
 		}
 		
-		if(getBottomMenuView() != null && mBottomMenuStyle.mMenuShadow > 0){
-			v = new View(getContext());
-			v.setBackgroundResource(mBottomMenuChild > mContentChild ? R.drawable.sm_topshadow :R.drawable.sm_bottomshadow);
-			super.addView(v, -1, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, mBottomMenuStyle.mMenuShadow));
+		/**
+		 * Declare a menu.
+		 * @param target one of TARGET_LEFT, TARGET_RIGHT, TARGET_TOP, TARGET_BOTTOM
+		 * @param index index of menu in SlideLayout.
+		 */
+		public Config setMenu(int target, int index, MenuConfig config){
+			int i;
+			switch (target) {
+				case TARGET_LEFT:
+					i = 0;
+					break;
+				case TARGET_RIGHT:
+					i = 1;
+					break;
+				case TARGET_TOP:
+					i = 2;
+					break;
+				case TARGET_BOTTOM:
+					i = 3;
+					break;
+				default:
+					throw new IllegalArgumentException("Invalid menu target: " + target);
+			}
 			
-			mBottomShadowChild = count;
-			count++;
+			mMenuChilds[i] = index;
+			mMenuConfigs[i] = config;
+			return this;
 		}
 	}
 	
-	public View getLeftMenuView(){		
-		return getChildAt(mLeftMenuChild);
+	/**
+	 * Configuration of a menu built in code, the same as a SlideMenuStyle. 
+	 * It starts with the values of SlideMenuStyleDefault. Sizes are in pixels.
+	 */
+	public static class MenuConfig{
+		final MenuSpec mSpec;
+		private Interpolator mInterpolator;
+		
+		/**
+		 * Start from the values of SlideMenuStyleDefault.
+		 */
+		public MenuConfig(Context context){
+			mSpec = new MenuSpec(MenuSpec.obtain(context, R.style.SlideMenuStyleDefault));
+		}
+		
+		public MenuConfig setOverDrag(boolean enable){
+			mSpec.mOverDrag = enable;
+			return this;
+		}
+		
+		public MenuConfig setMenuBorder(int size){
+			mSpec.mMenuBorder = size;
+			mSpec.mMenuBorderPercent = -1f;
+			return this;
+		}
+		
+		/**
+		 * @param percent percent of content view's size.
+		 */
+		public MenuConfig setMenuBorderPercent(float percent){
+			mSpec.mMenuBorderPercent = Math.max(0f, Math.min(1f, percent));
+			return this;
+		}
+		
+		public MenuConfig setMenuOverDragBorder(int size){
+			mSpec.mMenuOverDragBorder = size;
+			mSpec.mMenuOverDragBorderPercent = -1f;
+			return this;
+		}
+		
+		/**
+		 * @param percent percent of content view's size.
+		 */
+		public MenuConfig setMenuOverDragBorderPercent(float percent){
+			mSpec.mMenuOverDragBorderPercent = Math.max(0f, Math.min(1f, percent));
+			return this;
+		}
+		
+		public MenuConfig setSlideRatio(float ratio){
+			mSpec.mSlideRatio = ratio;
+			return this;
+		}
+		
+		public MenuConfig setMenuShadow(int size){
+			mSpec.mMenuShadow = size;
+			return this;
+		}
+		
+		/**
+		 * @param size size of drag region, or -1 to drag from anywhere on content view.
+		 */
+		public MenuConfig setDragEdge(int size){
+			mSpec.mDragEdge = size == -1 ? Integer.MAX_VALUE : size;
+			return this;
+		}
+		
+		public MenuConfig setTouchSlop(int slop){
+			mSpec.mTouchSlop = slop;
+			return this;
+		}
+		
+		public MenuConfig setMaxDim(float dim){
+			mSpec.mMaxDim = Math.max(0f, Math.min(1f, dim));
+			return this;
+		}
+		
+		public MenuConfig setVelocitySlop(float slop){
+			mSpec.mVelocitySlop = Math.max(500f, slop);
+			return this;
+		}
+		
+		public MenuConfig setCloseEdge(int size){
+			mSpec.mCloseEdge = size;
+			mSpec.mCloseEdgePercent = -1f;
+			return this;
+		}
+		
+		/**
+		 * @param percent percent of menu's size.
+		 */
+		public MenuConfig setCloseEdgePercent(float percent){
+			mSpec.mCloseEdgePercent = Math.max(0f, Math.min(1f, percent));
+			return this;
+		}
+		
+		public MenuConfig setAnimDuration(int duration){
+			mSpec.mAnimDuration = Math.max(0, duration);
+			return this;
+		}
+		
+		/**
+		 * @param interpolator null to use the default one.
+		 */
+		public MenuConfig setInterpolator(Interpolator interpolator){
+			mInterpolator = interpolator;
+			updateInterpolator();
+			return this;
+		}
+		
+		/**
+		 * @param enable true to sample the interpolator into a lookup table instead of evaluating it every frame.
+		 */
+		public MenuConfig setLookupInterpolator(boolean enable){
+			mSpec.mLookupInterpolator = enable;
+			updateInterpolator();
+			return this;
+		}
+		
+		private void updateInterpolator(){
+			if(mInterpolator != null && mSpec.mLookupInterpolator)
+				mSpec.mInterpolator = new LookupTableInterpolator(mInterpolator);
+			else
+				mSpec.mInterpolator = mInterpolator;
+		}
+		
+		public MenuConfig setHardwareLayer(boolean enable){
+			mSpec.mHardwareLayer = enable;
+			return this;
+		}
+		
+		/**
+		 * @param stiffness 0 means a fling uses the normal opening/closing animation.
+		 * @param damping 1 settles without bouncing, lower values bounce.
+		 */
+		public MenuConfig setSpring(float stiffness, float damping){
+			mSpec.mSpringStiffness = Math.max(0f, stiffness);
+			mSpec.mSpringDamping = Math.max(0.1f, damping);
+			return this;
+		}
+		
+		/**
+		 * @param policy one of {@link SlideLayout#RETAIN_KEEP}, {@link SlideLayout#RETAIN_DETACH}, {@link SlideLayout#RETAIN_DESTROY}
+		 */
+		public MenuConfig setRetainPolicy(int policy, int timeout){
+			mSpec.mRetainPolicy = policy;
+			mSpec.mRetainTimeout = Math.max(0, timeout);
+			return this;
+		}
 	}
 	
-	public View getRightMenuView(){		
-		return getChildAt(mRightMenuChild);
+	/**
+	 * Create a menu when it's needed for the first time.
+	 */
+	public interface MenuFactory{
+		/**
+		 * @param parent the SlideLayout that menu will be added to. Don't add the menu yourself.
+		 * @param target one of TARGET_LEFT, TARGET_RIGHT, TARGET_TOP, TARGET_BOTTOM
+		 * @return the menu view.
+		 */
+		public View createMenu(SlideLayout parent, int target);
 	}
 	
-	public View getTopMenuView(){		
-		return getChildAt(mTopMenuChild);
+	/**
+	 * Create menu by a factory when it's revealed for the first time.
+	 * The child at menu's index is only a placeholder until then, a {@link ViewStub} is the cheapest one.
+	 * @param target one of TARGET_LEFT, TARGET_RIGHT, TARGET_TOP, TARGET_BOTTOM
+	 */
+	public void setMenuFactory(int target, MenuFactory factory){
+		Edge edge = getEdge(target);
+		if(edge != null)
+			edge.factory = factory;
 	}
 	
-	public View getBottomMenuView(){		
-		return getChildAt(mBottomMenuChild);
+	/**
+	 * Inflate menu from a layout resource when it's revealed for the first time.
+	 * The child at menu's index is only a placeholder until then, a {@link ViewStub} is the cheapest one.
+	 * If menu's child is a ViewStub, it's not needed to call this function, the ViewStub's layout is used.
+	 * @param target one of TARGET_LEFT, TARGET_RIGHT, TARGET_TOP, TARGET_BOTTOM
+	 */
+	public void setMenuLayout(int target, int layoutId){
+		Edge edge = getEdge(target);
+		if(edge != null)
+			edge.layoutId = layoutId;
 	}
 	
-	public View getContentView(){		
-		return getChildAt(mContentChild);
+	private boolean isMenuPlaceholder(Edge edge, View menu){
+		return menu instanceof ViewStub || menu == edge.placeholder || (!edge.created && (edge.factory != null || edge.layoutId != 0));
 	}
+	
+	private int getMenuLayoutId(Edge edge, View placeholder){
+		if(edge.layoutId == 0 && placeholder instanceof ViewStub)
+			return ((ViewStub)placeholder).getLayoutResource();
 		
-	protected View getRightShadowView(){		
-		return getChildAt(mRightShadowChild);
+		return edge.layoutId;
 	}
 	
-	protected View getLeftShadowView(){		
-		return getChildAt(mLeftShadowChild);
+	/**
+	 * Get the real menu view of an edge, create it if the child is still a placeholder.
+	 */
+	private View ensureMenuView(Edge edge){
+		View menu = edge.getMenuView();
+		if(menu == null)
+			return null;
+		
+		removeCallbacks(edge.releaseRunnable);
+		
+		if(isMenuPlaceholder(edge, menu)){
+			// remember how to build menu again after it's destroyed
+			if(menu instanceof ViewStub){
+				edge.layoutId = getMenuLayoutId(edge, menu);
+				edge.inflatedId = ((ViewStub)menu).getInflatedId();
+			}
+			
+			View view = edge.detachedMenu;
+			edge.detachedMenu = null;
+			
+			// user reveals menu before pre-inflation is attached, take the finished view or inflate it right now.
+			MenuInflation inflation = edge.inflation;
+			if(inflation != null){
+				if(view == null)
+					view = inflation.view;
+				inflation.cancel();
+			}
+			
+			if(view == null){
+				if(edge.factory != null)
+					view = edge.factory.createMenu(this, edge.target);
+				else
+					view = LayoutInflater.from(getContext()).inflate(edge.layoutId, this, false);
+			}
+			
+			if(edge.inflatedId != View.NO_ID)
+				view.setId(edge.inflatedId);
+			
+			replaceMenuView(edge, menu, view);
+			edge.created = true;
+			
+			if(edge.savedState != null){
+				view.restoreHierarchyState(edge.savedState);
+				edge.savedState = null;
+			}
+			
+			menu = view;
+		}
+		
+		ensureOverlayView();
+		return menu;
 	}
 	
-	protected View getTopShadowView(){		
-		return getChildAt(mTopShadowChild);
+	/**
+	 * Inflate placeholder menus in background after first frame, so the first drag doesn't pay for inflation.
+	 * Menus created by a {@link MenuFactory} are not pre-inflated.
+	 */
+	public void setPreInflateMenus(boolean enable){
+		if(mPreInflateMenus == enable)
+			return;
+		
+		mPreInflateMenus = enable;
+		if(!enable)
+			cancelPreInflation();
+		else if(getWindowToken() != null)
+			schedulePreInflation();
 	}
 	
-	protected View getBottomShadowView(){		
-		return getChildAt(mBottomShadowChild);
+	public boolean isPreInflateMenus(){
+		return mPreInflateMenus;
 	}
 	
-	protected View getOverlayView(){		
-		return getChildAt(mOverlayChild);
+	private void schedulePreInflation(){
+		if(mPreInflateRunnable == null)
+			mPreInflateRunnable = new Runnable() {				
+				@Override
+				public void run() {
+					preInflateMenus();
+				}
+			};
+		
+		// runs after the first traversal of this window
+		removeCallbacks(mPreInflateRunnable);
+		post(mPreInflateRunnable);
 	}
-			
-	protected void setLeftMenuView(int viewWidth, int viewHeight){
-		View menu = getLeftMenuView();
-		if(menu == null)
+	
+	private void preInflateMenus(){
+		if(!mPreInflateMenus || getWindowToken() == null)
 			return;
-	    
-		if(mLeftMenuStyle.mMenuBorderPercent >= 0f)
-			mLeftMenuStyle.mMenuBorder = (int)(viewWidth * mLeftMenuStyle.mMenuBorderPercent);
-		if(mLeftMenuStyle.mMenuOverDragBorderPercent >= 0f)
-			mLeftMenuStyle.mMenuOverDragBorder = (int)(viewWidth * mLeftMenuStyle.mMenuOverDragBorderPercent);	
-		
-		mLeftMenuStyle.mSize = viewWidth - mLeftMenuStyle.mMenuBorder;
-		if(mLeftMenuStyle.mCloseEdgePercent >= 0f)
-			mLeftMenuStyle.mCloseEdge = (int)(mLeftMenuStyle.mSize * mLeftMenuStyle.mCloseEdgePercent);
 		
-        menu.setLayoutParams(new FrameLayout.LayoutParams(mLeftMenuStyle.mSize, FrameLayout.LayoutParams.MATCH_PARENT));
-        menu.setVisibility(mOffsetX <= 0 ? View.GONE : View.VISIBLE);	
+		for(Edge edge : mEdges){
+			View menu = edge.getMenuView();
+			if(menu == null || edge.inflation != null || edge.factory != null || edge.detachedMenu != null || !isMenuPlaceholder(edge, menu))
+				continue;
+			
+			int layoutId = getMenuLayoutId(edge, menu);
+			if(layoutId == 0)
+				continue;
+			
+			MenuInflation inflation = new MenuInflation(edge, layoutId);
+			if(inflation.submit())
+				edge.inflation = inflation;
+		}
 	}
 	
-	protected void setRightMenuView(int viewWidth, int viewHeight){
-		View menu = getRightMenuView();
-		if(menu == null)
-			return;
-	    
-		if(mRightMenuStyle.mMenuBorderPercent >= 0f)
-			mRightMenuStyle.mMenuBorder = (int)(viewWidth * mRightMenuStyle.mMenuBorderPercent);
-		if(mRightMenuStyle.mMenuOverDragBorderPercent >= 0f)
-			mRightMenuStyle.mMenuOverDragBorder = (int)(viewWidth * mRightMenuStyle.mMenuOverDragBorderPercent);	
+	private void cancelPreInflation(){
+		if(mPreInflateRunnable != null)
+			removeCallbacks(mPreInflateRunnable);
 		
-		mRightMenuStyle.mSize = viewWidth - mRightMenuStyle.mMenuBorder;
-		if(mRightMenuStyle.mCloseEdgePercent >= 0f)
-			mRightMenuStyle.mCloseEdge = (int)(mRightMenuStyle.mSize * mRightMenuStyle.mCloseEdgePercent);
+		for(Edge edge : mEdges)
+			if(edge.inflation != null)
+				edge.inflation.cancel();
+	}
+	
+	private static synchronized ThreadPoolExecutor getInflateExecutor(){
+		if(sInflateExecutor == null){
+			sInflateExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(MAX_PENDING_INFLATION), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "SlideLayout-inflater");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			}, new ThreadPoolExecutor.DiscardPolicy());
+			sMainHandler = new Handler(Looper.getMainLooper());
+		}
 		
-		menu.setLayoutParams(new FrameLayout.LayoutParams(mRightMenuStyle.mSize, FrameLayout.LayoutParams.MATCH_PARENT));
-		menu.setVisibility(mOffsetX >= 0 ? View.GONE : View.VISIBLE);
+		return sInflateExecutor;
 	}
 	
-	protected void setTopMenuView(int viewWidth, int viewHeight){
-		View menu = getTopMenuView();
-		if(menu == null)
-			return;
-	    
-		if(mTopMenuStyle.mMenuBorderPercent >= 0f)
-			mTopMenuStyle.mMenuBorder = (int)(viewWidth * mTopMenuStyle.mMenuBorderPercent);
-		if(mTopMenuStyle.mMenuOverDragBorderPercent >= 0f)
-			mTopMenuStyle.mMenuOverDragBorder = (int)(viewWidth * mTopMenuStyle.mMenuOverDragBorderPercent);
+	/**
+	 * Inflate a menu layout on the worker, then hand it to UI thread and attach it when the message queue is idle.
+	 */
+	private class MenuInflation implements Runnable, MessageQueue.IdleHandler{
+		final Edge edge;
+		final int layoutId;
+		final LayoutInflater inflater;
+		volatile View view;
+		volatile boolean cancelled = false;
+		
+		MenuInflation(Edge edge, int layoutId){
+			this.edge = edge;
+			this.layoutId = layoutId;
+			// a private inflater, the Activity's one is locked for a whole inflation and would block UI thread inflates
+			Context context = getContext();
+			this.inflater = LayoutInflater.from(context).cloneInContext(context);
+		}
 		
-		mTopMenuStyle.mSize = viewHeight - mTopMenuStyle.mMenuBorder;
-		if(mTopMenuStyle.mCloseEdgePercent >= 0f)
-			mTopMenuStyle.mCloseEdge = (int)(mTopMenuStyle.mSize * mTopMenuStyle.mCloseEdgePercent);
+		boolean submit(){
+			ThreadPoolExecutor executor = getInflateExecutor();
+			if(executor.getQueue().remainingCapacity() == 0)
+				return false;
+			
+			executor.execute(this);
+			return true;
+		}
 		
-		menu.setLayoutParams( new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, mTopMenuStyle.mSize));
-		menu.setVisibility(mOffsetY <= 0 ? View.GONE : View.VISIBLE);
+		/**
+		 * Called on UI thread, the inflated view (if any) is dropped.
+		 */
+		void cancel(){
+			cancelled = true;
+			getInflateExecutor().remove(this);
+			Looper.myQueue().removeIdleHandler(this);
+			if(edge.inflation == this)
+				edge.inflation = null;
+		}
+
+		@Override
+		public void run() {
+			if(cancelled)
+				return;
+			
+			try{
+				view = inflater.inflate(layoutId, SlideLayout.this, false);
+			}
+			catch(RuntimeException e){
+				// some views can only be created on UI thread, leave it to ensureMenuView()
+				return;
+			}
+			
+			sMainHandler.post(new Runnable() {				
+				@Override
+				public void run() {
+					if(!cancelled)
+						Looper.myQueue().addIdleHandler(MenuInflation.this);
+				}
+			});
+		}
+
+		@Override
+		public boolean queueIdle() {
+			if(!cancelled && edge.inflation == this)
+				ensureMenuView(edge);
+			
+			return false;
+		}
 	}
 	
-	protected void setBottomMenuView(int viewWidth, int viewHeight){
-		View menu = getBottomMenuView();
-		if(menu == null)
+	/**
+	 * Set what happens to a menu after it's closed.
+	 * @param target one of TARGET_LEFT, TARGET_RIGHT, TARGET_TOP, TARGET_BOTTOM
+	 * @param policy one of {@link #RETAIN_KEEP}, {@link #RETAIN_DETACH}, {@link #RETAIN_DESTROY}
+	 * @param timeout milliseconds menu has to stay closed before it's released.
+	 */
+	public void setMenuRetainPolicy(int target, int policy, int timeout){
+		Edge edge = getEdge(target);
+		if(edge == null || edge.style == null)
 			return;
-	    
-		if(mBottomMenuStyle.mMenuBorderPercent >= 0f)
-			mBottomMenuStyle.mMenuBorder = (int)(viewWidth * mBottomMenuStyle.mMenuBorderPercent);
-		if(mBottomMenuStyle.mMenuOverDragBorderPercent >= 0f)
-			mBottomMenuStyle.mMenuOverDragBorder = (int)(viewWidth * mBottomMenuStyle.mMenuOverDragBorderPercent);
 		
-		mBottomMenuStyle.mSize = viewHeight - mBottomMenuStyle.mMenuBorder;
-		if(mBottomMenuStyle.mCloseEdgePercent >= 0f)
-			mBottomMenuStyle.mCloseEdge = (int)(mBottomMenuStyle.mSize * mBottomMenuStyle.mCloseEdgePercent);
+		edge.style.mRetainPolicy = policy;
+		edge.style.mRetainTimeout = Math.max(0, timeout);
 		
-		menu.setLayoutParams(new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, mBottomMenuStyle.mSize));
-		menu.setVisibility(mOffsetY >= 0 ? View.GONE : View.VISIBLE);
+		if(policy == RETAIN_KEEP)
+			removeCallbacks(edge.releaseRunnable);
+		else if(getWindowToken() != null)
+			registerTrimCallbacks();
 	}
 	
-	protected void setContentView(int viewWidth, int viewHeight){
-		View content = getContentView();
-		if(content == null)
+	private void scheduleMenuRelease(Edge edge){
+		if(edge == null || edge.style.mRetainPolicy == RETAIN_KEEP)
 			return;
-	    
-		content.setLayoutParams(new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+		
+		removeCallbacks(edge.releaseRunnable);
+		postDelayed(edge.releaseRunnable, edge.style.mRetainTimeout);
 	}
 	
-	protected void setShadow(int viewWidth, int viewHeight){
-		setVisibility(getOverlayView(), View.GONE);
-		setVisibility(getLeftShadowView(), mOffsetX <= 0 ? View.GONE : View.VISIBLE);
-		setVisibility(getRightShadowView(), mOffsetX >= 0 ? View.GONE : View.VISIBLE);
-		setVisibility(getTopShadowView(), mOffsetY <= 0 ? View.GONE : View.VISIBLE);
-		setVisibility(getBottomShadowView(), mOffsetY >= 0 ? View.GONE : View.VISIBLE);
+	/**
+	 * Swap a closed menu for a placeholder.
+	 */
+	private void releaseMenu(Edge edge, int policy){
+		View menu = edge.getMenuView();
+		if(policy == RETAIN_KEEP || menu == null || getCurrentTarget() == edge.target || isMenuPlaceholder(edge, menu))
+			return;
+		
+		removeCallbacks(edge.releaseRunnable);
+		
+		// can't destroy a menu we don't know how to create again
+		if(policy == RETAIN_DESTROY && edge.factory == null && edge.layoutId == 0)
+			policy = RETAIN_DETACH;
+		
+		if(edge.placeholder == null)
+			edge.placeholder = new View(getContext());
+		
+		if(policy == RETAIN_DESTROY){
+			edge.savedState = new SparseArray<Parcelable>();
+			menu.saveHierarchyState(edge.savedState);
+		}
+		else
+			edge.detachedMenu = menu;
+		
+		replaceMenuView(edge, menu, edge.placeholder);
+		edge.created = false;
+	}
+	
+	private void trimMenus(){
+		for(Edge edge : mEdges)
+			if(edge.style != null)
+				releaseMenu(edge, edge.style.mRetainPolicy);
+		
+		SnapshotPool.trim();
+	}
+	
+	/**
+	 * Draw a bitmap of content view instead of the live view while menu is dragged and settled after the drag.
+	 * Content that draws outside of its view hierarchy (SurfaceView, TextureView) isn't captured.
+	 */
+	public void setSnapshotDragEnable(boolean enable){
+		mSnapshotDrag = enable;
+		if(!enable)
+			releaseSnapshot();
+		else if(getWindowToken() != null)
+			registerTrimCallbacks();
+	}
+	
+	public boolean isSnapshotDragEnable(){
+		return mSnapshotDrag;
+	}
+	
+	/**
+	 * Move content and menus by their translation properties instead of offsetting their layout positions.
+	 * Children stay laid out at rest, so a drag never needs a layout pass and a relayout inside content doesn't disturb the menu.
+	 * Requires API 11, ignored on older versions.
+	 */
+	public void setTranslationMode(boolean enable){
+		enable = enable && android.os.Build.VERSION.SDK_INT >= 11;
+		if(mTranslationMode == enable)
+			return;
+		
+		if(mTranslationMode){
+			setTranslation(getContentView(), 0, 0);
+			setTranslation(getLeftMenuView(), 0, 0);
+			setTranslation(getRightMenuView(), 0, 0);
+			setTranslation(getTopMenuView(), 0, 0);
+			setTranslation(getBottomMenuView(), 0, 0);
+			setTranslation(getOverlayView(), 0, 0);
+		}
+		
+		mTranslationMode = enable;
+		setHiddenVisibility(getLeftMenuView());
+		setHiddenVisibility(getRightMenuView());
+		setHiddenVisibility(getTopMenuView());
+		setHiddenVisibility(getBottomMenuView());
+		setHiddenVisibility(getOverlayView());
+		mAppliedTarget = -1;
+		requestLayout();
+	}
+	
+	private void setHiddenVisibility(View v){
+		if(v != null && v.getVisibility() != View.VISIBLE)
+			setVisibility(v, View.GONE);
+	}
+	
+	public boolean isTranslationMode(){
+		return mTranslationMode;
+	}
+	
+	/**
+	 * Show how many times each visible pixel is drawn by SlideLayout and its children in the top left corner.
+	 * Pixels drawn inside children (their own backgrounds and content) aren't counted.
+	 */
+	public void setDebugOverdrawEnable(boolean enable){
+		if(mDebugOverdraw != enable){
+			mDebugOverdraw = enable;
+			invalidate();
+		}
+	}
+	
+	public boolean isDebugOverdrawEnable(){
+		return mDebugOverdraw;
+	}
+	
+	/**
+	 * Get the area drawn in the last frame divided by the visible area of SlideLayout. 
+	 * Only measured while debug overdraw is enabled.
+	 */
+	public float getOverdrawFactor(){
+		return mOverdrawFactor;
+	}
+	
+	/**
+	 * Set the maximum bytes of bitmaps all SlideLayouts may keep for snapshot drag. 
+	 * A drag that needs more is done with the live content view. Default is 1/8 of heap size.
+	 */
+	public static void setSnapshotMemoryLimit(long bytes){
+		SnapshotPool.sMaxBytes = bytes;
+		SnapshotPool.trim();
+	}
+	
+	private void takeSnapshot(){
+		if(mSnapshot != null)
+			return;
+		
+		View content = getContentView();
+		if(content == null || content.getWidth() <= 0 || content.getHeight() <= 0)
+			return;
+		
+		Bitmap bitmap = SnapshotPool.acquire(content.getWidth(), content.getHeight());
+		if(bitmap == null)
+			return;
+		
+		bitmap.eraseColor(0);
+		Canvas canvas = new Canvas(bitmap);
+		canvas.translate(-content.getScrollX(), -content.getScrollY());
+		content.draw(canvas);
+		
+		mSnapshot = bitmap;
+		invalidate();
+	}
+	
+	private void releaseSnapshot(){
+		if(mSnapshot == null)
+			return;
+		
+		SnapshotPool.release(mSnapshot);
+		mSnapshot = null;
+		invalidate();
+	}
+	
+	/**
+	 * Bitmaps for snapshot drag, shared by all SlideLayouts and only used on UI thread.
+	 * Bitmaps are reused by size, the total size of bitmaps in use and in pool never exceeds the limit.
+	 */
+	private static class SnapshotPool{
+		static final ArrayList<Bitmap> sFree = new ArrayList<Bitmap>();
+		static long sBytes = 0;
+		static long sMaxBytes = Runtime.getRuntime().maxMemory() / 8;
+		
+		static Bitmap acquire(int width, int height){
+			for(int i = sFree.size() - 1; i >= 0; i--){
+				Bitmap bitmap = sFree.get(i);
+				if(bitmap.getWidth() == width && bitmap.getHeight() == height)
+					return sFree.remove(i);
+			}
+			
+			long bytes = getBytes(width, height);
+			while(sBytes + bytes > sMaxBytes && !sFree.isEmpty())
+				drop(sFree.remove(0));
+			
+			if(sBytes + bytes > sMaxBytes)
+				return null;
+			
+			try{
+				Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+				sBytes += bytes;
+				return bitmap;
+			}
+			catch(OutOfMemoryError e){
+				return null;
+			}
+		}
+		
+		static void release(Bitmap bitmap){
+			if(sBytes > sMaxBytes)
+				drop(bitmap);
+			else
+				sFree.add(bitmap);
+		}
+		
+		static void trim(){
+			while(!sFree.isEmpty())
+				drop(sFree.remove(sFree.size() - 1));
+		}
+		
+		private static void drop(Bitmap bitmap){
+			sBytes -= getBytes(bitmap.getWidth(), bitmap.getHeight());
+			bitmap.recycle();
+		}
+		
+		private static long getBytes(int width, int height){
+			return (long)width * height * 4;
+		}
+	}
+	
+	@SuppressLint("NewApi")
+	private void registerTrimCallbacks(){
+		if(mTrimCallbacks != null || android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+			return;
+		
+		// snapshot pool is emptied on memory pressure too
+		boolean needed = mSnapshotDrag;
+		for(Edge edge : mEdges)
+			if(edge.style != null && edge.style.mRetainPolicy != RETAIN_KEEP)
+				needed = true;
+		
+		if(!needed)
+			return;
+		
+		mTrimCallbacks = new ComponentCallbacks2() {			
+			@Override
+			public void onLowMemory() {
+				trimMenus();
+			}
+			
+			@Override
+			public void onConfigurationChanged(Configuration newConfig) {}
+			
+			@Override
+			public void onTrimMemory(int level) {
+				if(level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+					trimMenus();
+			}
+		};
+		getContext().getApplicationContext().registerComponentCallbacks(mTrimCallbacks);
+	}
+	
+	@SuppressLint("NewApi")
+	private void unregisterTrimCallbacks(){
+		if(mTrimCallbacks == null)
+			return;
+		
+		getContext().getApplicationContext().unregisterComponentCallbacks(mTrimCallbacks);
+		mTrimCallbacks = null;
+	}
+	
+	/**
+	 * Put view at menu's index, so the order of children doesn't change. 
+	 */
+	private void replaceMenuView(Edge edge, View oldMenu, View newMenu){
+		int index = indexOfChild(oldMenu);
+		ViewGroup.LayoutParams params = oldMenu.getLayoutParams();
+		
+		removeViewAt(index);
+		super.addView(newMenu, index, params);
+		
+		if(mViewWidth >= 0)
+			setMenuView(edge.target, mViewWidth, mViewHeight);
+	}
+	
+	/**
+	 * Create overlay the first time a menu is revealed.
+	 */
+	@SuppressWarnings("deprecation")
+	@SuppressLint("NewApi")
+	private void ensureOverlayView(){
+		// in canvas scrim mode the dim is drawn by dispatchDraw, so no overlay child is needed
+		if(!mCanvasScrim && getOverlayView() == null){
+			View v = new View(getContext());
+			mDimDrawable = new ColorDrawable(0xFF000000);
+			mDimAlpha = -1;
+			v.setBackgroundDrawable(mDimDrawable);
+			setVisibility(v, View.GONE);
+			if (android.os.Build.VERSION.SDK_INT > android.os.Build.VERSION_CODES.HONEYCOMB)
+				v.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+			
+			mOverlayChild = getChildCount();
+			super.addView(v, -1, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+		}
+	}
+	
+	public View getLeftMenuView(){		
+		return getChildAt(mLeftMenuChild);
+	}
+	
+	public View getRightMenuView(){		
+		return getChildAt(mRightMenuChild);
+	}
+	
+	public View getTopMenuView(){		
+		return getChildAt(mTopMenuChild);
+	}
+	
+	public View getBottomMenuView(){		
+		return getChildAt(mBottomMenuChild);
+	}
+	
+	public View getContentView(){		
+		return getChildAt(mContentChild);
+	}
+		
+	protected View getOverlayView(){		
+		return getChildAt(mOverlayChild);
+	}
+	
+	private View getMenuView(int target){
+		switch (target) {
+			case TARGET_LEFT:
+				return getLeftMenuView();
+			case TARGET_RIGHT:
+				return getRightMenuView();
+			case TARGET_TOP:
+				return getTopMenuView();
+			case TARGET_BOTTOM:
+				return getBottomMenuView();
+		}
+		return null;
+	}
+	
+	private MenuStyle getMenuStyle(int target){
+		switch (target) {
+			case TARGET_LEFT:
+				return mLeftMenuStyle;
+			case TARGET_RIGHT:
+				return mRightMenuStyle;
+			case TARGET_TOP:
+				return mTopMenuStyle;
+			case TARGET_BOTTOM:
+				return mBottomMenuStyle;
+		}
+		return null;
+	}
+			
+	protected void setLeftMenuView(int viewWidth, int viewHeight){
+		View menu = getLeftMenuView();
+		if(menu == null)
+			return;
+	    
+		if(updateMenuGeometry(menu, mLeftMenuStyle, viewWidth, viewWidth, true))
+			menu.requestLayout();
+        setVisibility(menu, mOffsetX <= 0 ? View.GONE : View.VISIBLE);	
+	}
+	
+	protected void setRightMenuView(int viewWidth, int viewHeight){
+		View menu = getRightMenuView();
+		if(menu == null)
+			return;
+	    
+		if(updateMenuGeometry(menu, mRightMenuStyle, viewWidth, viewWidth, true))
+			menu.requestLayout();
+		setVisibility(menu, mOffsetX >= 0 ? View.GONE : View.VISIBLE);
+	}
+	
+	protected void setTopMenuView(int viewWidth, int viewHeight){
+		View menu = getTopMenuView();
+		if(menu == null)
+			return;
+	    
+		if(updateMenuGeometry(menu, mTopMenuStyle, viewHeight, viewWidth, false))
+			menu.requestLayout();
+		setVisibility(menu, mOffsetY <= 0 ? View.GONE : View.VISIBLE);
+	}
+	
+	protected void setBottomMenuView(int viewWidth, int viewHeight){
+		View menu = getBottomMenuView();
+		if(menu == null)
+			return;
+	    
+		if(updateMenuGeometry(menu, mBottomMenuStyle, viewHeight, viewWidth, false))
+			menu.requestLayout();
+		setVisibility(menu, mOffsetY >= 0 ? View.GONE : View.VISIBLE);
+	}
+	
+	/**
+	 * Update menu's size for SlideLayout's size and change its LayoutParams in place.
+	 * @return true if menu's LayoutParams changed.
+	 */
+	private boolean updateMenuGeometry(View menu, MenuStyle style, int viewSize, int percentBase, boolean horizontal){
+		if(menu == null)
+			return false;
+		
+		style.updateGeometry(viewSize, percentBase);
+		if(horizontal)
+			return setChildSize(menu, style.mSize, FrameLayout.LayoutParams.MATCH_PARENT);
+		else
+			return setChildSize(menu, FrameLayout.LayoutParams.MATCH_PARENT, style.mSize);
+	}
+	
+	/**
+	 * Called before children are measured, so changed LayoutParams are used by this pass and don't request another one.
+	 */
+	private void updateGeometry(int viewWidth, int viewHeight){
+		updateMenuGeometry(getLeftMenuView(), mLeftMenuStyle, viewWidth, viewWidth, true);
+		updateMenuGeometry(getRightMenuView(), mRightMenuStyle, viewWidth, viewWidth, true);
+		updateMenuGeometry(getTopMenuView(), mTopMenuStyle, viewHeight, viewWidth, false);
+		updateMenuGeometry(getBottomMenuView(), mBottomMenuStyle, viewHeight, viewWidth, false);
+		setChildSize(getContentView(), FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT);
+	}
+	
+	/**
+	 * @return true if child's LayoutParams changed.
+	 */
+	private boolean setChildSize(View child, int width, int height){
+		if(child == null)
+			return false;
+		
+		ViewGroup.LayoutParams params = child.getLayoutParams();
+		if(params == null){
+			child.setLayoutParams(new FrameLayout.LayoutParams(width, height));
+			return false;
+		}
+		
+		boolean changed = params.width != width || params.height != height;
+		params.width = width;
+		params.height = height;
+		
+		// children are placed by onLayout, margins would only shrink them
+		if(params instanceof ViewGroup.MarginLayoutParams){
+			ViewGroup.MarginLayoutParams margins = (ViewGroup.MarginLayoutParams)params;
+			if(margins.leftMargin != 0 || margins.topMargin != 0 || margins.rightMargin != 0 || margins.bottomMargin != 0){
+				margins.setMargins(0, 0, 0, 0);
+				changed = true;
+			}
+		}
+		
+		return changed;
+	}
+	
+	private void setMenuView(int target, int viewWidth, int viewHeight){
+		switch (target) {
+			case TARGET_LEFT:
+				setLeftMenuView(viewWidth, viewHeight);
+				break;
+			case TARGET_RIGHT:
+				setRightMenuView(viewWidth, viewHeight);
+				break;
+			case TARGET_TOP:
+				setTopMenuView(viewWidth, viewHeight);
+				break;
+			case TARGET_BOTTOM:
+				setBottomMenuView(viewWidth, viewHeight);
+				break;
+		}
+	}
+	
+	protected void setContentView(int viewWidth, int viewHeight){
+		View content = getContentView();
+		if(content == null)
+			return;
+	    
+		if(setChildSize(content, FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT))
+			content.requestLayout();
+	}
+	
+	protected void setShadow(int viewWidth, int viewHeight){
+		setVisibility(getOverlayView(), View.GONE);
 	}
 		
 	/**
@@ -489,433 +1521,514 @@ public class SlideLayout extends FrameLayout {
 	public void setDragEnable(boolean enable){
 		mDragEnable = enable;
 	}
+	
+	/**
+	 * Check if dim is drawn directly on canvas instead of by an overlay view
+	 */
+	public boolean isCanvasScrimEnable(){
+		return mCanvasScrim;
+	}
 		
+	/**
+	 * Set the sink that receives frame statistics of each drag and animation. 
+	 * Nothing is measured when there is no sink.
+	 */
+	public void setMetricsSink(MetricsSink sink){
+		mMetricsSink = sink;
+		if(sink == null)
+			mMetricsType = -1;
+	}
+	
+	/**
+	 * Get the number of times the content and menu views were promoted to hardware layers.
+	 * Each drag or open/close animation of a menu with sm_hardwareLayer enabled counts once.
+	 */
+	public int getLayerPromotionCount(){
+		return mLayerPromotionCount;
+	}
+	
+	/**
+	 * Get the number of layout passes of SlideLayout. A size change should cost only one.
+	 */
+	public int getLayoutPassCount(){
+		return mLayoutPassCount;
+	}
+	
+	/**
+	 * Get the number of offset changes that moved children and invalidated SlideLayout.
+	 */
+	public int getOffsetUpdateCount(){
+		return mOffsetUpdateCount;
+	}
+	
+	/**
+	 * Get the number of offset changes that were ignored because children were already at that offset,
+	 * for example dragging against the border of a fully opened menu. They cost neither layout nor drawing.
+	 */
+	public int getOffsetSkipCount(){
+		return mOffsetSkipCount;
+	}
+	
+	/**
+	 * Set the listener that is only weakly referenced by this SlideLayout.
+	 * To register more listeners, use {@link #addOnStateChangedListener(OnStateChangedListener)}.
+	 */
 	public void setOnStateChangedListener(OnStateChangedListener listener){
 		if(listener == null)
 			mStateListener = null;
+		else
+			mStateListener = new WeakReference<OnStateChangedListener>(listener);
+	}
+	
+	/**
+	 * Register a listener. State changes are delivered in order as they happen,
+	 * offset changes are coalesced to at most one delivery per frame. 
+	 * Listener is strongly referenced until {@link #removeOnStateChangedListener(OnStateChangedListener)} is called.
+	 */
+	public void addOnStateChangedListener(OnStateChangedListener listener){
+		if(listener == null)
+			return;
 		
-		mStateListener = new WeakReference<OnStateChangedListener>(listener);
+		OnStateChangedListener[] listeners = mStateListeners;
+		for(int i = 0; i < listeners.length; i++)
+			if(listeners[i] == listener)
+				return;
+		
+		OnStateChangedListener[] newListeners = new OnStateChangedListener[listeners.length + 1];
+		System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+		newListeners[listeners.length] = listener;
+		mStateListeners = newListeners;
 	}
 	
-	public boolean dispatchTouchEvent(MotionEvent event){			
-		if(mAction == ACTION_SHOW){
-			switch (mTarget) {
-				case TARGET_CONTENT:
-					return dispatchTouchEventStateShowContent(event);
-				case TARGET_LEFT:
-					return dispatchTouchEventStateShowLeftMenu(event);
-				case TARGET_RIGHT:
-					return dispatchTouchEventStateShowRightMenu(event);
-				case TARGET_TOP:
-					return dispatchTouchEventStateShowTopMenu(event);
-				case TARGET_BOTTOM:
-					return dispatchTouchEventStateShowBottomMenu(event);
-			}
-		}
-		else if(mAction == ACTION_DRAG){
-			switch (mTarget) {
-				case TARGET_LEFT:
-					return dispatchTouchEventStateDragLeftMenu(event);
-				case TARGET_RIGHT:
-					return dispatchTouchEventStateDragRightMenu(event);
-				case TARGET_TOP:
-					return dispatchTouchEventStateDragTopMenu(event);
-				case TARGET_BOTTOM:
-					return dispatchTouchEventStateDragBottomMenu(event);
+	public void removeOnStateChangedListener(OnStateChangedListener listener){
+		OnStateChangedListener[] listeners = mStateListeners;
+		for(int i = 0; i < listeners.length; i++)
+			if(listeners[i] == listener){
+				if(listeners.length == 1)
+					mStateListeners = EMPTY_LISTENERS;
+				else{
+					OnStateChangedListener[] newListeners = new OnStateChangedListener[listeners.length - 1];
+					System.arraycopy(listeners, 0, newListeners, 0, i);
+					System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+					mStateListeners = newListeners;
+				}
+				return;
 			}
+	}
+	
+	private Edge getEdge(int target){
+		switch (target) {
+			case TARGET_LEFT:
+				return mLeftEdge;
+			case TARGET_RIGHT:
+				return mRightEdge;
+			case TARGET_TOP:
+				return mTopEdge;
+			case TARGET_BOTTOM:
+				return mBottomEdge;
 		}
+		return null;
+	}
+	
+	public boolean dispatchTouchEvent(MotionEvent event){	
+		if(mMetricsType < 0)
+			return dispatchTouchEventByState(event);
 		
-		return true;		
+		long time = System.nanoTime();
+		boolean result = dispatchTouchEventByState(event);
+		mFrameStats.mTouchTime += System.nanoTime() - time;
+		mFrameStats.mTouchCount++;
+		return result;
 	}
 	
-	private boolean dispatchTouchEventStateShowContent(MotionEvent event){
-		if(!mDragEnable)
-			return super.dispatchTouchEvent(event);
+	private boolean dispatchTouchEventByState(MotionEvent event){	
+		trackPointer(event);
 		
-		if(event.getAction() ==  MotionEvent.ACTION_DOWN){
-			if((mLeftMenuStyle != null && event.getX() < mLeftMenuStyle.mDragEdge) 
-					|| (mRightMenuStyle != null && event.getX() > mViewWidth - mRightMenuStyle.mDragEdge)
-					|| (mTopMenuStyle != null && event.getY() < mTopMenuStyle.mDragEdge)
-					|| (mBottomMenuStyle != null && event.getY() > mViewHeight - mBottomMenuStyle.mDragEdge)){
-				mDownX = event.getX();
-				mDownY = event.getY();
-				mPrevX = mDownX;
-				mPrevY = mDownY;
-				mDisX = 0f;
-				mDisY = 0f;
-				super.dispatchTouchEvent(event);
-				return true;
+		boolean down = event.getActionMasked() == MotionEvent.ACTION_DOWN;
+		if(down){
+			releaseNestedDrag();
+			mDragDisallowed = false;
+		}
+		
+		int state = mState.get();
+		int action = getStateAction(state);
+		boolean dragging = action == ACTION_DRAG;
+		boolean result = true;
+		
+		if(action == ACTION_SHOW){
+			if(getStateTarget(state) == TARGET_CONTENT)
+				result = dispatchTouchEventStateShowContent(event);
+			else{
+				Edge edge = getEdge(getStateTarget(state));
+				if(edge != null)
+					result = dispatchTouchEventStateShowMenu(edge, event);
 			}
 		}
-		else if(event.getAction() ==  MotionEvent.ACTION_UP){
-			mDownX = -1;		
-			mDownY = -1;
+		else if(action == ACTION_DRAG){
+			Edge edge = getEdge(getStateTarget(state));
+			if(edge != null)
+				result = dispatchTouchEventStateDragMenu(edge, event);
 		}
-		else if(event.getAction() == MotionEvent.ACTION_MOVE && mDownX > 0 && mDownY > 0){
-			if(getLeftMenuView() != null && mDownX < mLeftMenuStyle.mDragEdge){
-				if(event.getX() >= mPrevX){
-					mDisX += event.getX() - mPrevX;
-					mPrevX = event.getX();
-					mPrevY = event.getY();
-					
-					if(mDisX > mLeftMenuStyle.mTouchSlop){		
-						mOffsetX = Math.min(mLeftMenuStyle.mSize, Math.max(0, (int)(mOffsetX + mDisX)));
-						offsetViewX(mOffsetX);										
-										
-						setState(mOffsetX < mLeftMenuStyle.mSize ? ACTION_DRAG : ACTION_SHOW, TARGET_LEFT, OP.START_DRAG_LEFT_FROM_CONTENT);
-						boolean result = cancelMotionEvent(event, null);
-												
-						dispatchOffsetChangedEvent((float)mOffsetX / (float)mLeftMenuStyle.mSize, 0f);
-						
-						mStartDrag = true;						
-						return result;								
-					}
-				}
-				else
-					mDownX = -1;
-			}
-			else if(getRightMenuView() != null && mDownX > mViewWidth - mRightMenuStyle.mDragEdge){
-				if(event.getX() <= mPrevX){
-					mDisX += mPrevX - event.getX();
-					mPrevX = event.getX();
-					mPrevY = event.getY();
-					
-					if(mDisX > mRightMenuStyle.mTouchSlop){								
-						mOffsetX = Math.max(-mRightMenuStyle.mSize, Math.min(0, (int)(mOffsetX - mDisX)));
-						offsetViewX(mOffsetX);
-						
-						setState(mOffsetX > -mRightMenuStyle.mSize ? ACTION_DRAG : ACTION_SHOW, TARGET_RIGHT, OP.START_DRAG_RIGHT_FROM_CONTENT);
-						boolean result = cancelMotionEvent(event, null);
-												
-						dispatchOffsetChangedEvent((float)-mOffsetX / (float)mRightMenuStyle.mSize, 0f);
-						
-						mStartDrag = true;
-						return result;								
+		
+		// drag started by this event, the next moves are measured from here
+		if(!dragging && getCurrentAction() == ACTION_DRAG)
+			setPrevPosition(event);
+		
+		// children have seen DOWN and nested SlideLayouts have claimed their directions by now
+		if(down)
+			claimNestedDrag();
+		else if(event.getActionMasked() == MotionEvent.ACTION_UP || event.getActionMasked() == MotionEvent.ACTION_CANCEL)
+			releaseNestedDrag();
+		
+		return result;		
+	}
+	
+	/**
+	 * Decide at DOWN which directions this layout may start a drag with, leaving the ones a nested SlideLayout claimed to it,
+	 * and register to the nearest SlideLayout ancestor. So the layouts agree before the first move which one drags, 
+	 * instead of both tracking moves until one of them passes its touch slop.
+	 */
+	private void claimNestedDrag(){
+		int directions = 0;
+		
+		if(getCurrentAction() == ACTION_SHOW && mDragEnable && !mDragDisallowed){
+			if(getCurrentTarget() == TARGET_CONTENT){
+				if(mDownEdge != null && mDownX > 0){
+					int direction = getDragDirection(mDownEdge.horizontal, mDownEdge.sign);
+					if(isNestedDragClaimed(direction)){
+						mDownX = -1;
+						mDownY = -1;
 					}
+					else
+						directions = direction;
 				}
-				else
-					mDownX = -1;
 			}
-			else if(getTopMenuView() != null && mDownY < mTopMenuStyle.mDragEdge){
-				if(event.getY() >= mPrevY){
-					mDisY += event.getY() - mPrevY;
-					mPrevY = event.getY();
-					mPrevX = event.getX();
-					
-					if(mDisY > mTopMenuStyle.mTouchSlop){
-						mOffsetY = Math.min(mTopMenuStyle.mSize, Math.max(0, (int)(mOffsetY + mDisY)));
-						offsetViewY(mOffsetY);		
-						
-						setState(mOffsetY < mTopMenuStyle.mSize ? ACTION_DRAG : ACTION_SHOW, TARGET_TOP, OP.START_DRAG_TOP_FROM_CONTENT);
-						boolean result = cancelMotionEvent(event, null);
-												
-						dispatchOffsetChangedEvent(0f, (float)mOffsetY / (float)mTopMenuStyle.mSize);
-						
-						mStartDrag = true;
-						return result;
-					}
-				}
-				else
-					mDownY = -1;
+			else{
+				Edge edge = getEdge(getCurrentTarget());
+				if(edge != null)
+					directions = getDragDirection(edge.horizontal, -edge.sign);
 			}
-			else if(getBottomMenuView() != null && mDownY > mViewHeight - mBottomMenuStyle.mDragEdge){
-				if(event.getY() <= mPrevY){
-					mDisY += mPrevY - event.getY();
-					mPrevX = event.getX();
-					mPrevY = event.getY();
-					
-					if(mDisY > mBottomMenuStyle.mTouchSlop){
-						mOffsetY = Math.max(-mBottomMenuStyle.mSize, Math.min(0, (int)(mOffsetY - mDisY)));
-						offsetViewY(mOffsetY);
-						
-						setState(mOffsetY > -mBottomMenuStyle.mSize ? ACTION_DRAG : ACTION_SHOW, TARGET_BOTTOM, OP.START_DRAG_BOTTOM_FROM_CONTENT);
-						boolean result = cancelMotionEvent(event, null);
-												
-						dispatchOffsetChangedEvent(0f, (float)-mOffsetY / (float)mBottomMenuStyle.mSize);
-						
-						mStartDrag = true;
-						return result;								
-					}
-				}
-				else
-					mDownY = -1;
+		}
+		
+		mClaimedDirections = directions;
+		if(directions == 0 && mNestedChild == null)
+			return;
+		
+		for(ViewParent parent = getParent(); parent != null; parent = parent.getParent())
+			if(parent instanceof SlideLayout){
+				SlideLayout layout = (SlideLayout)parent;
+				if(layout.mNestedChild == null)
+					layout.mNestedChild = this;
+				break;
 			}
-		}		
-			
-		return super.dispatchTouchEvent(event);
 	}
 	
-	private boolean dispatchTouchEventStateShowLeftMenu(MotionEvent event){
-		if(mLeftMenuStyle.mMenuBorder == 0){
-			if(event.getAction() ==  MotionEvent.ACTION_DOWN){
-				if(event.getX() > mViewWidth - mLeftMenuStyle.mDragEdge){
-					mDownX = event.getX();
-					mDownY = event.getY();
-					mPrevX = mDownX;
-					mPrevY = mDownY;
-					mDisX = 0f;
-					mDisY = 0f;
-				}
-			}
-			else if(event.getAction() ==  MotionEvent.ACTION_UP){
-				mDownX = -1;		
-				mDownY = -1;
-			}
-			else if(event.getAction() == MotionEvent.ACTION_MOVE && mDownX > 0 && mDownY > 0){
-				if(event.getX() <= mPrevX){
-					mDisX += mPrevX - event.getX();
-					mPrevX = event.getX();
-					mPrevY = event.getY();
-					
-					if(mDisX > mLeftMenuStyle.mTouchSlop){								
-						mOffsetX = Math.min(mLeftMenuStyle.mSize, Math.max(0, (int)(event.getX())));
-						offsetViewX(mOffsetX);		
-						
-						setState(mOffsetX < mLeftMenuStyle.mSize ? ACTION_DRAG : ACTION_SHOW, TARGET_LEFT, OP.START_DRAG_LEFT_FROM_CONTENT);
-						boolean result = cancelMotionEvent(event, getLeftMenuView());
-												
-						dispatchOffsetChangedEvent((float)mOffsetX / (float)mLeftMenuStyle.mSize, 0f);												
-						return result;							
-					}
-				}
-				else
-					mDownX = -1;
-			}
-		}
+	/**
+	 * Forget the claims of the finished gesture, so a removed nested SlideLayout isn't kept alive until next DOWN.
+	 */
+	private void releaseNestedDrag(){
+		mNestedChild = null;
+		mClaimedDirections = 0;
+	}
+	
+	/**
+	 * Check if a nested SlideLayout under the pointer claimed a drag direction, the innermost layout gets it.
+	 */
+	private boolean isNestedDragClaimed(int direction){
+		for(SlideLayout child = mNestedChild; child != null; child = child.mNestedChild)
+			if((child.mClaimedDirections & direction) != 0)
+				return true;
 		
-		if(!mDragEnable || !mGestureDetector.onTouchEvent(event)){
-			if(!getLeftMenuView().dispatchTouchEvent(event))
-				return super.dispatchTouchEvent(event);
-		}		
+		return false;
+	}
+	
+	private static int getDragDirection(boolean horizontal, int sign){
+		if(horizontal)
+			return sign > 0 ? DRAG_RIGHT : DRAG_LEFT;
 		else
-			getLeftMenuView().dispatchTouchEvent(event);	
+			return sign > 0 ? DRAG_DOWN : DRAG_UP;
+	}
+	
+	@Override
+	public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+		super.requestDisallowInterceptTouchEvent(disallowIntercept);
 		
-		return true; 
+		// a child (a scrolling list or a nested SlideLayout that started dragging) took the gesture, 
+		// so no drag is started here until next DOWN
+		if(disallowIntercept && getCurrentAction() == ACTION_SHOW){
+			mDragDisallowed = true;
+			mDownX = -1;
+			mDownY = -1;
+		}
 	}
 	
-	private boolean dispatchTouchEventStateDragLeftMenu(MotionEvent event){
-		if(!mGestureDetector.onTouchEvent(event) && (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL)){
-			
-			if(mOffsetX < mLeftMenuStyle.mCloseEdge)
-				closeLeftMenu(true);					
-			else
-				openLeftMenu(true);
+	/**
+	 * Follow one pointer through the gesture. When it goes up another pointer takes over from its own position, so menu never jumps.
+	 */
+	private void trackPointer(MotionEvent event){
+		if(mVelocityTracker == null)
+			mVelocityTracker = VelocityTracker.obtain();
+		
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_DOWN:
+				mVelocityTracker.clear();
+				mActivePointerId = event.getPointerId(0);
+				break;
+			case MotionEvent.ACTION_POINTER_DOWN:
+				mActivePointerId = event.getPointerId(event.getActionIndex());
+				setPrevPosition(event);
+				break;
+			case MotionEvent.ACTION_POINTER_UP:
+				int index = event.getActionIndex();
+				if(event.getPointerId(index) == mActivePointerId){
+					mActivePointerId = event.getPointerId(index == 0 ? 1 : 0);
+					setPrevPosition(event);
+				}
+				break;
 		}
 		
+		mVelocityTracker.addMovement(event);
+	}
+	
+	private int getActivePointerIndex(MotionEvent event){
+		int index = event.findPointerIndex(mActivePointerId);
+		return index < 0 ? 0 : index;
+	}
+	
+	private void setPrevPosition(MotionEvent event){
+		int index = getActivePointerIndex(event);
+		mPrevX = event.getX(index);
+		mPrevY = event.getY(index);
+		mDragPosition.reset();
+	}
+	
+	private void startTouch(MotionEvent event){
+		setPrevPosition(event);
+		mDownX = mPrevX;
+		mDownY = mPrevY;
+		mDragDistance = 0f;
+	}
+	
+	/**
+	 * Add the distance active pointer moved in a direction since last event. 
+	 * The batched samples of the event sum up to its net movement, so they aren't walked here, and direction is judged on the net movement 
+	 * so jitter between samples doesn't cancel the drag. VelocityTracker still gets every sample.
+	 * @param sign 1 to count movement toward the positive side of edge's axis, -1 for the other side.
+	 * @return false if pointer moved backward.
+	 */
+	private boolean accumulateDragDistance(Edge edge, int sign, MotionEvent event){
+		int index = getActivePointerIndex(event);
+		float distance = sign * (edge.position(event) - (edge.horizontal ? mPrevX : mPrevY));
+		if(distance < 0)
+			return false;
+		
+		mDragDistance += distance;
+		mPrevX = event.getX(index);
+		mPrevY = event.getY(index);
 		return true;
 	}
 	
-	private boolean dispatchTouchEventStateShowRightMenu(MotionEvent event){
-		if(mRightMenuStyle.mMenuBorder == 0){
-			if(event.getAction() ==  MotionEvent.ACTION_DOWN){
-				if(event.getX() < mRightMenuStyle.mDragEdge){
-					mDownX = event.getX();
-					mDownY = event.getY();
-					mPrevX = mDownX;
-					mPrevY = mDownY;
-					mDisX = 0f;
-					mDisY = 0f;
-				}
-			}
-			else if(event.getAction() ==  MotionEvent.ACTION_UP){
-				mDownX = -1;		
-				mDownY = -1;
-			}
-			else if(event.getAction() == MotionEvent.ACTION_MOVE && mDownX > 0 && mDownY > 0){
-				if(event.getX() >= mPrevX){
-					mDisX += event.getX() - mPrevX;
-					mPrevX = event.getX();
-					mPrevY = event.getY();
-					
-					if(mDisX > mRightMenuStyle.mTouchSlop){
-						mOffsetX = Math.max(-mRightMenuStyle.mSize, Math.min(0, (int)(event.getX() - mViewWidth)));
-						offsetViewX(mOffsetX);
-						
-						setState(mOffsetX > -mRightMenuStyle.mSize ? ACTION_DRAG : ACTION_SHOW, TARGET_RIGHT, OP.START_DRAG_RIGHT_FROM_CONTENT);
-						boolean result = cancelMotionEvent(event, getRightMenuView());
-												
-						dispatchOffsetChangedEvent((float)-mOffsetX / (float)mRightMenuStyle.mSize, 0f);
-						
-						return result;		
-					}
-				}
-				else
-					mDownX = -1;
-			}
+	/**
+	 * Follow active pointer through every batched sample of the event, clamping menu's position at its borders after each one. 
+	 * So a pointer going past a border and back within one event moves menu back at once, as the samples would have if delivered one by one.
+	 * Menu is moved once at next frame however many moves arrive.
+	 */
+	private void dragMenu(Edge edge, MotionEvent event){
+		MenuStyle style = edge.style;
+		int max = style.mOverDrag ? edge.getViewSize() - style.mMenuOverDragBorder : style.mSize;
+		// first move since last frame, start from where menu is in case it was moved by code
+		if(mPendingDragEdge == null)
+			mDragPosition.sync(edge.getOffset());
+		
+		int index = getActivePointerIndex(event);
+		float prev = edge.horizontal ? mPrevX : mPrevY;
+		for(int i = 0, size = event.getHistorySize(); i <= size; i++){
+			float position = i < size ? edge.historicalPosition(event, index, i) : edge.position(event);
+			mDragPosition.move(edge.sign * (position - prev), max);
+			prev = position;
 		}
 		
-		if(!mDragEnable || !mGestureDetector.onTouchEvent(event)){
-			event.offsetLocation(-mRightMenuStyle.mMenuBorder, 0);
-			
-			if(!getRightMenuView().dispatchTouchEvent(event)){
-				event.offsetLocation(mRightMenuStyle.mMenuBorder, 0);
-				return super.dispatchTouchEvent(event);
-			}
-		}		
-		else{
-			event.offsetLocation(-mRightMenuStyle.mMenuBorder, 0);
-			getRightMenuView().dispatchTouchEvent(event);
-			event.offsetLocation(mRightMenuStyle.mMenuBorder, 0);
+		mPendingDragEdge = edge;
+		mPrevX = event.getX(index);
+		mPrevY = event.getY(index);
+		
+		if(!mDragFramePending){
+			mDragFramePending = true;
+			postOnNextFrame(mDragFrameRunnable);
 		}
+	}
+	
+	/**
+	 * Move menu to the position dragged to. Sub-pixel movement is carried to next frame.
+	 */
+	private void flushDrag(){
+		Edge edge = mPendingDragEdge;
+		mPendingDragEdge = null;
+		
+		if(edge == null || !isState(ACTION_DRAG, edge.target))
+			return;
 		
-		return true; 		
-	}
-	
-	private boolean dispatchTouchEventStateDragRightMenu(MotionEvent event){
-		if(!mGestureDetector.onTouchEvent(event) && (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL)){
-			
-			if(mOffsetX > -mRightMenuStyle.mCloseEdge)
-				closeRightMenu(true);
-			else
-				openRightMenu(true);
+		int offset = mDragPosition.getOffset();
+		if(offset != edge.getOffset()){
+			edge.setOffset(offset);
+			edge.dispatchOffsetChangedEvent();
+			// already in a frame callback, posting would make listeners lag the menu by a frame
+			flushOffsetChangedEvent();
 		}
-		
-		return true;
 	}
 	
-	private boolean dispatchTouchEventStateShowTopMenu(MotionEvent event){
-		if(mTopMenuStyle.mMenuBorder == 0){
-			if(event.getAction() ==  MotionEvent.ACTION_DOWN){
-				if(event.getY() > mViewHeight - mTopMenuStyle.mDragEdge){
-					mDownX = event.getX();
-					mDownY = event.getY();
-					mPrevX = mDownX;
-					mPrevY = mDownY;
-					mDisX = 0f;
-					mDisY = 0f;
+	private boolean dispatchTouchEventStateShowContent(MotionEvent event){
+		if(!mDragEnable)
+			return super.dispatchTouchEvent(event);
+		
+		if(event.getAction() ==  MotionEvent.ACTION_DOWN){
+			boolean inDragEdge = false;
+			mDownEdge = null;
+			
+			for(Edge edge : mEdges){
+				if(edge.style != null && edge.distanceFromEdge(edge.position(event)) < edge.style.mDragEdge){
+					inDragEdge = true;
+					if(mDownEdge == null && edge.getMenuView() != null)
+						mDownEdge = edge;
 				}
 			}
-			else if(event.getAction() ==  MotionEvent.ACTION_UP){
-				mDownX = -1;		
-				mDownY = -1;
+			
+			if(inDragEdge){
+				startTouch(event);
+				super.dispatchTouchEvent(event);
+				return true;
 			}
-			else if(event.getAction() == MotionEvent.ACTION_MOVE && mDownX > 0 && mDownY > 0){
-				if(event.getY() <= mPrevY){
-					mDisY += mPrevY - event.getY();
-					mPrevX = event.getX();
-					mPrevY = event.getY();
+		}
+		else if(event.getAction() ==  MotionEvent.ACTION_UP){
+			mDownX = -1;		
+			mDownY = -1;
+		}
+		else if(event.getAction() == MotionEvent.ACTION_MOVE && mDownX > 0 && mDownY > 0 && mDownEdge != null){
+			Edge edge = mDownEdge;
+			
+			// distance moved toward the opened position
+			if(accumulateDragDistance(edge, edge.sign, event)){
+				if(mDragDistance > edge.style.mTouchSlop){
+					ensureMenuView(edge);
+					int offset = Math.min(edge.style.mSize, Math.max(0, (int)(edge.getOffset() + mDragDistance)));
 					
-					if(mDisY > mTopMenuStyle.mTouchSlop){
-						mOffsetY = Math.min(mTopMenuStyle.mSize, Math.max(0, (int)(event.getY())));
-						offsetViewY(mOffsetY);		
-						
-						setState(mOffsetY < mTopMenuStyle.mSize ? ACTION_DRAG : ACTION_SHOW, TARGET_TOP, OP.START_DRAG_TOP_FROM_CONTENT);
-						boolean result = cancelMotionEvent(event, getTopMenuView());
-												
-						dispatchOffsetChangedEvent(0f, (float)mOffsetY / (float)mTopMenuStyle.mSize);
-						
-						return result;							
-					}
+					if(!setState(getState(ACTION_SHOW, TARGET_CONTENT), offset < edge.style.mSize ? ACTION_DRAG : ACTION_SHOW, edge.target, edge.startDragOp))
+						return super.dispatchTouchEvent(event);
+					
+					edge.setOffset(offset);
+					boolean result = cancelMotionEvent(event, null);
+					
+					edge.dispatchOffsetChangedEvent();
+					return result;
 				}
-				else
-					mDownY = -1;
 			}
-		}
-		
-		if(!mDragEnable || !mGestureDetector.onTouchEvent(event)){
-			if(!getTopMenuView().dispatchTouchEvent(event))
-				return super.dispatchTouchEvent(event);
+			else{
+				mDownX = -1;
+				mDownY = -1;
+			}
 		}		
-		else
-			getTopMenuView().dispatchTouchEvent(event);	
-		
-		return true; 
-		
-//		if(!getTopMenuView().dispatchTouchEvent(event)){
-//			if(!dragEnable)
-//				return super.dispatchTouchEvent(event);
-//			else if(!gestureDetector.onTouchEvent(event))
-//				return super.dispatchTouchEvent(event);
-//		}
-//		
-//		return true;
-	}
-	
-	private boolean dispatchTouchEventStateDragTopMenu(MotionEvent event){
-		if(!mGestureDetector.onTouchEvent(event) && (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL)){
 			
-			if(mOffsetY < mTopMenuStyle.mCloseEdge)
-				closeTopMenu(true);
-			else
-				openTopMenu(true);
-		}
-		
-		return true;
+		return super.dispatchTouchEvent(event);
 	}
 	
-	private boolean dispatchTouchEventStateShowBottomMenu(MotionEvent event){
-		if(mBottomMenuStyle.mMenuBorder == 0){
+	private boolean dispatchTouchEventStateShowMenu(Edge edge, MotionEvent event){
+		MenuStyle style = edge.style;
+		View menu = edge.getMenuView();
+		// the closing drag is left to a nested SlideLayout or a child that took the gesture
+		boolean nested = mDragDisallowed || isNestedDragClaimed(getDragDirection(edge.horizontal, -edge.sign));
+		
+		// a full-size menu can be dragged back from the opposite side
+		if(style.mMenuBorder == 0){
 			if(event.getAction() ==  MotionEvent.ACTION_DOWN){
-				if(event.getY() < mBottomMenuStyle.mDragEdge){
-					mDownX = event.getX();
-					mDownY = event.getY();
-					mPrevX = mDownX;
-					mPrevY = mDownY;
-					mDisX = 0f;
-					mDisY = 0f;
-				}
+				if(edge.distanceFromEdge(edge.position(event)) > edge.getViewSize() - style.mDragEdge)
+					startTouch(event);
 			}
 			else if(event.getAction() ==  MotionEvent.ACTION_UP){
 				mDownX = -1;		
 				mDownY = -1;
 			}
-			else if(event.getAction() == MotionEvent.ACTION_MOVE && mDownX > 0 && mDownY > 0){
-				if(event.getY() >= mPrevY){
-					mDisY += event.getY() - mPrevY;
-					mPrevY = event.getY();
-					mPrevX = event.getX();
-					
-					if(mDisY > mBottomMenuStyle.mTouchSlop){
-						mOffsetY = Math.max(-mBottomMenuStyle.mSize, Math.min(0, (int)(event.getY() - mViewHeight)));
-						offsetViewY(mOffsetY);
+			else if(event.getAction() == MotionEvent.ACTION_MOVE && mDownX > 0 && mDownY > 0 && !nested){
+				// distance moved toward the closed position
+				if(accumulateDragDistance(edge, -edge.sign, event)){
+					if(mDragDistance > style.mTouchSlop){
+						int offset = Math.min(style.mSize, Math.max(0, (int)edge.distanceFromEdge(edge.position(event))));
+						
+						if(!setState(getState(ACTION_SHOW, edge.target), offset < style.mSize ? ACTION_DRAG : ACTION_SHOW, edge.target, edge.startDragOp))
+							return true;
 						
-						setState(mOffsetY > -mBottomMenuStyle.mSize ? ACTION_DRAG : ACTION_SHOW, TARGET_BOTTOM, OP.START_DRAG_BOTTOM_FROM_CONTENT);
-						boolean result = cancelMotionEvent(event, getBottomMenuView());
-												
-						dispatchOffsetChangedEvent(0f, (float)-mOffsetY / (float)mBottomMenuStyle.mSize);
+						edge.setOffset(offset);
+						boolean result = cancelMotionEvent(event, menu);
 						
-						return result;	
+						edge.dispatchOffsetChangedEvent();
+						return result;
 					}
 				}
-				else
+				else{
+					mDownX = -1;
 					mDownY = -1;
+				}
 			}
 		}
 		
-		if(!mDragEnable || !mGestureDetector.onTouchEvent(event)){
-			event.offsetLocation(0, -mBottomMenuStyle.mMenuBorder);
+		// right and bottom menus are laid out after the menu border
+		float dx = 0f;
+		float dy = 0f;
+		if(edge.sign < 0){
+			if(edge.horizontal)
+				dx = -style.mMenuBorder;
+			else
+				dy = -style.mMenuBorder;
+		}
+		
+		if(!mDragEnable || nested || !mGestureDetector.onTouchEvent(event)){
+			event.offsetLocation(dx, dy);
+			boolean handled = menu.dispatchTouchEvent(event);
+			event.offsetLocation(-dx, -dy);
 			
-			if(!getBottomMenuView().dispatchTouchEvent(event)){
-				event.offsetLocation(0, mBottomMenuStyle.mMenuBorder);
+			if(!handled)
 				return super.dispatchTouchEvent(event);
-			}
 		}		
 		else{
-			event.offsetLocation(0, -mBottomMenuStyle.mMenuBorder);
-			getBottomMenuView().dispatchTouchEvent(event);
-			event.offsetLocation(0, mBottomMenuStyle.mMenuBorder);
+			event.offsetLocation(dx, dy);
+			menu.dispatchTouchEvent(event);
+			event.offsetLocation(-dx, -dy);
 		}
 		
 		return true; 
 	}
 	
-	private boolean dispatchTouchEventStateDragBottomMenu(MotionEvent event){
-		if(!mGestureDetector.onTouchEvent(event) && (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL)){
-			
-			if(mOffsetY > -mBottomMenuStyle.mCloseEdge)
-				closeBottomMenu(true);
-			else
-				openBottomMenu(true);
+	private boolean dispatchTouchEventStateDragMenu(Edge edge, MotionEvent event){
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_MOVE:
+				dragMenu(edge, event);
+				break;
+			case MotionEvent.ACTION_UP:
+				flushDrag();
+				mVelocityTracker.computeCurrentVelocity(1000);
+				if(!onFling(null, event, mVelocityTracker.getXVelocity(mActivePointerId), mVelocityTracker.getYVelocity(mActivePointerId)))
+					settleDraggedMenu(edge);
+				break;
+			case MotionEvent.ACTION_CANCEL:
+				flushDrag();
+				settleDraggedMenu(edge);
+				break;
 		}
 		
 		return true;
 	}
 	
+	private void settleDraggedMenu(Edge edge){
+		if(edge.getOffset() < edge.style.mCloseEdge)
+			closeMenu(edge.target, true);
+		else
+			openMenu(edge.target, true);
+	}
+	
 	protected boolean onSingleTapUp(MotionEvent e) {		
-		if(mAction != ACTION_SHOW)
+		if(getCurrentAction() != ACTION_SHOW)
 			return false;
 		
-		switch (mTarget) {
+		switch (getCurrentTarget()) {
 			case TARGET_LEFT:
 				if(e.getX() > mLeftMenuStyle.mSize){
 					closeLeftMenu(true);
@@ -947,186 +2060,125 @@ public class SlideLayout extends FrameLayout {
 	}
 	
 	protected boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-		if(mAction == ACTION_SHOW){
-			switch (mTarget) {
-				case TARGET_LEFT:				
-					if(e1 != null && e1.getX() > mLeftMenuStyle.mSize && distanceX > 0){
-						mOffsetX =  Math.min(mLeftMenuStyle.mSize, Math.max(0, mOffsetX - (int)distanceX));
-						offsetViewX(mOffsetX);
-						
-						cancelMotionEvent(e2, null);
-												
-						if(mOffsetX > 0)
-							setState(ACTION_DRAG, TARGET_LEFT, OP.START_DRAG_LEFT_FROM_MENU);
-						else
-							setState(ACTION_SHOW, TARGET_CONTENT, OP.START_DRAG_LEFT_FROM_MENU);
-						
-						dispatchOffsetChangedEvent((float)mOffsetX / (float)mLeftMenuStyle.mSize, 0f);					
-						return true;
-					}	
-					break;
-				case TARGET_RIGHT:				
-					if(e1 != null && e1.getX() < mViewWidth - mRightMenuStyle.mSize && distanceX < 0){					
-						mOffsetX =  Math.max(-mRightMenuStyle.mSize, Math.min(0, mOffsetX - (int)distanceX));
-						offsetViewX(mOffsetX);
-						
-						cancelMotionEvent(e2, null);
-												
-						if(mOffsetX < 0)
-							setState(ACTION_DRAG, TARGET_RIGHT, OP.START_DRAG_RIGHT_FROM_MENU);
-						else
-							setState(ACTION_SHOW, TARGET_CONTENT, OP.START_DRAG_RIGHT_FROM_MENU);
-						dispatchOffsetChangedEvent((float)-mOffsetX / (float)mRightMenuStyle.mSize, 0f);	
-						return true;
-					}	
-					break;	
-				case TARGET_TOP:				
-					if(e1 != null && e1.getY() > mTopMenuStyle.mSize && distanceY > 0){					
-						mOffsetY =  Math.min(mTopMenuStyle.mSize, Math.max(0, mOffsetY - (int)distanceY));
-						offsetViewY(mOffsetY);
-						
-						cancelMotionEvent(e2, null);
-												
-						if(mOffsetY > 0)
-							setState(ACTION_DRAG, TARGET_TOP, OP.START_DRAG_TOP_FROM_MENU);
-						else
-							setState(ACTION_SHOW, TARGET_CONTENT, OP.START_DRAG_TOP_FROM_MENU);						
-						dispatchOffsetChangedEvent(0f, (float)mOffsetY / (float)mTopMenuStyle.mSize);	
-						return true;
-					}	
-					break;
-				case TARGET_BOTTOM:				
-					if(e1 != null && e1.getY() < mViewHeight - mBottomMenuStyle.mSize && distanceY < 0){					
-						mOffsetY =  Math.max(-mBottomMenuStyle.mSize, Math.min(0, mOffsetY - (int)distanceY));
-						offsetViewY(mOffsetY);					
-						
-						cancelMotionEvent(e2, null);
-												
-						if(mOffsetY < 0)
-							setState(ACTION_DRAG, TARGET_BOTTOM, OP.START_DRAG_BOTTOM_FROM_MENU);
-						else
-							setState(ACTION_SHOW, TARGET_CONTENT, OP.START_DRAG_BOTTOM_FROM_MENU);	
-						dispatchOffsetChangedEvent(0f, (float)-mOffsetY / (float)mBottomMenuStyle.mSize);	
-						return true;
-					}	
-					break;
-			}
+		int state = mState.get();
+		if(getStateAction(state) != ACTION_SHOW || e1 == null)
+			return false;
+		
+		Edge edge = getEdge(getStateTarget(state));
+		if(edge == null)
+			return false;
+		
+		// content beside an opened menu is dragged toward the closed position
+		MenuStyle style = edge.style;
+		float distance = edge.horizontal ? distanceX : distanceY;
+		if(edge.distanceFromEdge(edge.horizontal ? e1.getX() : e1.getY()) > style.mSize && edge.sign * distance > 0){
+			int offset = Math.min(style.mSize, Math.max(0, edge.getOffset() - edge.sign * (int)distance));
+			edge.setOffset(offset);
+			
+			cancelMotionEvent(e2, null);
+			
+			if(offset > 0)
+				setState(state, ACTION_DRAG, edge.target, edge.dragFromMenuOp);
+			else
+				setState(state, ACTION_SHOW, TARGET_CONTENT, edge.dragFromMenuOp);
+			
+			edge.dispatchOffsetChangedEvent();
+			return true;
 		}
-		else if(mAction == ACTION_DRAG){
-			switch (mTarget) {
-				case TARGET_LEFT:
-					if(mStartDrag){
-						mStartDrag = false;
-						return true;
-					}
-					mOffsetX = Math.min(mLeftMenuStyle.mOverDrag ? mViewWidth - mLeftMenuStyle.mMenuOverDragBorder : mLeftMenuStyle.mSize, Math.max(0, mOffsetX - (int)distanceX));
-					offsetViewX(mOffsetX);				
-					dispatchOffsetChangedEvent((float)mOffsetX / (float)mLeftMenuStyle.mSize, 0f);	
-					return true;
-				case TARGET_RIGHT:
-					if(mStartDrag){
-						mStartDrag = false;
-						return true;
-					}				
-					mOffsetX = Math.max(mRightMenuStyle.mOverDrag ? mRightMenuStyle.mMenuOverDragBorder - mViewWidth : -mRightMenuStyle.mSize, Math.min(0, mOffsetX - (int)distanceX));
-					offsetViewX(mOffsetX);
-					dispatchOffsetChangedEvent((float)-mOffsetX / (float)mRightMenuStyle.mSize, 0f);	
-					return true;	
-				case TARGET_TOP:
-					if(mStartDrag){
-						mStartDrag = false;
-						return true;
-					}	
-					mOffsetY = Math.min(mTopMenuStyle.mOverDrag ? mViewHeight - mTopMenuStyle.mMenuOverDragBorder : mTopMenuStyle.mSize, Math.max(0, mOffsetY - (int)distanceY));
-					offsetViewY(mOffsetY);
-					dispatchOffsetChangedEvent(0f, (float)mOffsetY / (float)mTopMenuStyle.mSize);	
-					return true;
-				case TARGET_BOTTOM:
-					if(mStartDrag){
-						mStartDrag = false;
-						return true;
-					}				
-					mOffsetY = Math.max(mBottomMenuStyle.mOverDrag ? mBottomMenuStyle.mMenuOverDragBorder - mViewHeight : -mBottomMenuStyle.mSize, Math.min(0, mOffsetY - (int)distanceY));
-					offsetViewY(mOffsetY);
-					dispatchOffsetChangedEvent(0f, (float)-mOffsetY / (float)mBottomMenuStyle.mSize);	
-					return true;
-			}
-		}		
+		
 		return false;
 	}
 	
 	protected boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-		if(mAction == ACTION_SHOW || mAction == ACTION_DRAG){
-			switch (mTarget) {
-				case TARGET_LEFT:
-					if(velocityX > mLeftMenuStyle.mVelocitySlop){
-						if(mOffsetX != mLeftMenuStyle.mSize)
-							openLeftMenu(true);
-						else
-							setState(ACTION_SHOW, TARGET_LEFT, OP.FLING_LEFT);	
-						return true;
-					}
-					else if(velocityX < -mLeftMenuStyle.mVelocitySlop){
-						if(mOffsetX > 0)
-							closeLeftMenu(true);
-						else
-							setState(ACTION_SHOW, TARGET_CONTENT, OP.FLING_LEFT);
-						return true;
-					}
-					break;
-				case TARGET_RIGHT:					
-					if(velocityX < -mRightMenuStyle.mVelocitySlop){
-						if(mOffsetX != -mRightMenuStyle.mSize)
-							openRightMenu(true);
-						else
-							setState(ACTION_SHOW, TARGET_RIGHT, OP.FLING_RIGHT);	
-						return true;
-					}
-					else if(velocityX > mRightMenuStyle.mVelocitySlop){
-						if(mOffsetX < 0)
-							closeRightMenu(true);
-						else
-							setState(ACTION_SHOW, TARGET_CONTENT, OP.FLING_RIGHT);	
-						return true;
-					}
-					break;	
-				case TARGET_TOP:
-					if(velocityY > mTopMenuStyle.mVelocitySlop){
-						if(mOffsetY != mTopMenuStyle.mSize)
-							openTopMenu(true);
-						else
-							setState(ACTION_SHOW, TARGET_TOP, OP.FLING_TOP);	
-						return true;
-					}
-					else if(velocityY < -mTopMenuStyle.mVelocitySlop){
-						if(mOffsetY > 0)
-							closeTopMenu(true);
-						else
-							setState(ACTION_SHOW, TARGET_CONTENT, OP.FLING_TOP);
-						return true;
-					}
-					break;
-				case TARGET_BOTTOM:
-					if(velocityY < -mBottomMenuStyle.mVelocitySlop){
-						if(mOffsetY != -mBottomMenuStyle.mSize)
-							openBottomMenu(true);
-						else
-							setState(ACTION_SHOW, TARGET_BOTTOM, OP.FLING_BOTTOM);	
-						return true;
-					}
-					else if(velocityY > mBottomMenuStyle.mVelocitySlop){
-						if(mOffsetY < 0)
-							closeBottomMenu(true);
-						else
-							setState(ACTION_SHOW, TARGET_CONTENT, OP.FLING_BOTTOM);	
-						return true;
-					}
-					break;	
-			}
-		}		
+		int state = mState.get();
+		if(getStateAction(state) != ACTION_SHOW && getStateAction(state) != ACTION_DRAG)
+			return false;
+		
+		Edge edge = getEdge(getStateTarget(state));
+		if(edge == null)
+			return false;
+		
+		MenuStyle style = edge.style;
+		float velocity = edge.horizontal ? velocityX : velocityY;
+		// velocity toward the opened position
+		float openVelocity = edge.sign * velocity;
+		
+		if(openVelocity > style.mVelocitySlop){
+			if(edge.getOffset() != style.mSize)
+				settleMenu(edge.target, true, velocity);
+			else
+				setState(state, ACTION_SHOW, edge.target, edge.flingOp);
+			return true;
+		}
+		else if(openVelocity < -style.mVelocitySlop){
+			if(edge.getOffset() > 0)
+				settleMenu(edge.target, false, velocity);
+			else
+				setState(state, ACTION_SHOW, TARGET_CONTENT, edge.flingOp);
+			return true;
+		}
+		
 		return false;
 	}
 	
+	/**
+	 * Open or close menu after a fling. If menu has a spring configured, it settles from the fling's velocity,
+	 * otherwise the normal open/close animation is used.
+	 * @param velocity velocity of the fling along menu's axis, in pixels per second
+	 */
+	private void settleMenu(int target, boolean isOpen, float velocity){
+		MenuStyle style = getMenuStyle(target);
+		int state = mState.get();
+		boolean canSettle = isOpen ? (state == getState(ACTION_SHOW, TARGET_CONTENT) || state == getState(ACTION_DRAG, target) || state == getState(ACTION_CLOSE, target))
+				: (state == getState(ACTION_SHOW, target) || state == getState(ACTION_DRAG, target) || state == getState(ACTION_OPEN, target));
+		
+		if(style == null || style.mSpringStiffness <= 0f || !canSettle || getMenuView(target) == null){
+			if(isOpen)
+				openMenu(target, true);
+			else
+				closeMenu(target, true);
+			return;
+		}
+		
+		OP op = getEdge(target).flingOp;
+		if(setState(state, isOpen ? ACTION_OPEN : ACTION_CLOSE, target, op))
+			mSlideAnimator.fling(isOpen, velocity, op);
+	}
+	
+	private void openMenu(int target, boolean animation){
+		switch (target) {
+			case TARGET_LEFT:
+				openLeftMenu(animation);
+				break;
+			case TARGET_RIGHT:
+				openRightMenu(animation);
+				break;
+			case TARGET_TOP:
+				openTopMenu(animation);
+				break;
+			case TARGET_BOTTOM:
+				openBottomMenu(animation);
+				break;
+		}
+	}
+	
+	private void closeMenu(int target, boolean animation){
+		switch (target) {
+			case TARGET_LEFT:
+				closeLeftMenu(animation);
+				break;
+			case TARGET_RIGHT:
+				closeRightMenu(animation);
+				break;
+			case TARGET_TOP:
+				closeTopMenu(animation);
+				break;
+			case TARGET_BOTTOM:
+				closeBottomMenu(animation);
+				break;
+		}
+	}
+	
 	/**
 	 * Close any menu if it is opened
 	 * @param animation true: show closing animation, false: close immediately
@@ -1135,7 +2187,7 @@ public class SlideLayout extends FrameLayout {
 		if(isState(ACTION_SHOW, TARGET_CONTENT))
 			return;
 		
-		switch (mTarget) {
+		switch (getCurrentTarget()) {
 			case TARGET_LEFT:
 				closeLeftMenu(animation);
 				break;
@@ -1152,256 +2204,200 @@ public class SlideLayout extends FrameLayout {
 	}
 	
 	public void openLeftMenu(boolean animation){		
-		if(getLeftMenuView() == null || (!isState(ACTION_SHOW, TARGET_CONTENT) && !isState(ACTION_DRAG, TARGET_LEFT)))
+		if(ensureMenuView(mLeftEdge) == null)
+			return;
+		
+		int state = mState.get();
+		if(state != getState(ACTION_SHOW, TARGET_CONTENT) && state != getState(ACTION_DRAG, TARGET_LEFT) && state != getState(ACTION_CLOSE, TARGET_LEFT))
 			return;
 		
 		long duration = (long)Math.abs(mLeftMenuStyle.mAnimDuration * ((float)(mLeftMenuStyle.mSize - mOffsetX) / (float)mLeftMenuStyle.mSize));		
 		getLeftMenuView().clearAnimation();
 		
 		if(animation && duration > 0){
-			setState(ACTION_OPEN, TARGET_LEFT, OP.OPEN_LEFT);	
-			SlideAnimation anim = new SlideAnimation(true);
-			anim.setDuration(duration);
-			anim.setAnimationListener(new Animation.AnimationListener() {			
-				@Override
-				public void onAnimationStart(Animation animation) {}
-				
-				@Override
-				public void onAnimationRepeat(Animation animation) {}
-				
-				@Override
-				public void onAnimationEnd(Animation animation) {
-					setState(ACTION_SHOW, TARGET_LEFT, OP.OPEN_LEFT);	
-				}
-			});
-			this.startAnimation(anim);
+			if(setState(state, ACTION_OPEN, TARGET_LEFT, OP.OPEN_LEFT))
+				mSlideAnimator.start(true, duration, OP.OPEN_LEFT);
 		}
 		else{	
-			setState(ACTION_SHOW, TARGET_LEFT, OP.OPEN_LEFT);	
+			mSlideAnimator.cancel();
+			if(!setState(state, ACTION_SHOW, TARGET_LEFT, OP.OPEN_LEFT))
+				return;
+			
 			mOffsetX = mLeftMenuStyle.mSize;
 			offsetViewX(mOffsetX);
 		}		
 	}
 	
 	public void closeLeftMenu(boolean animation){
-		if(getLeftMenuView() == null || (!isState(ACTION_SHOW, TARGET_LEFT) && !isState(ACTION_DRAG, TARGET_LEFT)))
+		if(getLeftMenuView() == null)
+			return;
+		
+		int state = mState.get();
+		if(state != getState(ACTION_SHOW, TARGET_LEFT) && state != getState(ACTION_DRAG, TARGET_LEFT) && state != getState(ACTION_OPEN, TARGET_LEFT))
 			return;
 		
 		long duration = (long)(mLeftMenuStyle.mAnimDuration * ((float)mOffsetX / (float)mLeftMenuStyle.mSize));				
 		getLeftMenuView().clearAnimation();
 		
 		if(animation && duration > 0){
-			setState(ACTION_CLOSE, TARGET_LEFT, OP.CLOSE_LEFT);
-			SlideAnimation anim = new SlideAnimation(false);
-			anim.setDuration(duration);
-			anim.setAnimationListener(new Animation.AnimationListener() {			
-				@Override
-				public void onAnimationStart(Animation animation) {}
-				
-				@Override
-				public void onAnimationRepeat(Animation animation) {}
-				
-				@Override
-				public void onAnimationEnd(Animation animation) {
-					setState(ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_LEFT);
-				}
-			});
-			this.startAnimation(anim);
+			if(setState(state, ACTION_CLOSE, TARGET_LEFT, OP.CLOSE_LEFT))
+				mSlideAnimator.start(false, duration, OP.CLOSE_LEFT);
 		}
 		else{		
-			setState(ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_LEFT);
+			mSlideAnimator.cancel();
+			if(!setState(state, ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_LEFT))
+				return;
+			
 			mOffsetX = 0;
 			offsetViewX(mOffsetX);	
 		}	
 	}
 	
 	public void openRightMenu(boolean animation){
-		if(getRightMenuView() == null || (!isState(ACTION_SHOW, TARGET_CONTENT) && !isState(ACTION_DRAG, TARGET_RIGHT)))
+		if(ensureMenuView(mRightEdge) == null)
+			return;
+		
+		int state = mState.get();
+		if(state != getState(ACTION_SHOW, TARGET_CONTENT) && state != getState(ACTION_DRAG, TARGET_RIGHT) && state != getState(ACTION_CLOSE, TARGET_RIGHT))
 			return;
 				
 		long duration = (long)Math.abs(mRightMenuStyle.mAnimDuration * ((float)(mOffsetX + mRightMenuStyle.mSize) / (float)mRightMenuStyle.mSize));		
 		getRightMenuView().clearAnimation();
 		
 		if(animation && duration > 0){
-			setState(ACTION_OPEN, TARGET_RIGHT, OP.OPEN_RIGHT);	
-			SlideAnimation anim = new SlideAnimation(true);
-			anim.setDuration(duration);
-			anim.setAnimationListener(new Animation.AnimationListener() {			
-				@Override
-				public void onAnimationStart(Animation animation) {}
-				
-				@Override
-				public void onAnimationRepeat(Animation animation) {}
-				
-				@Override
-				public void onAnimationEnd(Animation animation) {
-					setState(ACTION_SHOW, TARGET_RIGHT, OP.OPEN_RIGHT);	
-				}
-			});
-			this.startAnimation(anim);
+			if(setState(state, ACTION_OPEN, TARGET_RIGHT, OP.OPEN_RIGHT))
+				mSlideAnimator.start(true, duration, OP.OPEN_RIGHT);
 		}
 		else{		
-			setState(ACTION_SHOW, TARGET_RIGHT, OP.OPEN_RIGHT);	
+			mSlideAnimator.cancel();
+			if(!setState(state, ACTION_SHOW, TARGET_RIGHT, OP.OPEN_RIGHT))
+				return;
+			
 			mOffsetX = -mRightMenuStyle.mSize;
 			offsetViewX(mOffsetX);
 		}
 	}
 			
 	public void closeRightMenu(boolean animation){
-		if(getRightMenuView() == null || (!isState(ACTION_SHOW, TARGET_RIGHT) && !isState(ACTION_DRAG, TARGET_RIGHT)))
+		if(getRightMenuView() == null)
+			return;
+		
+		int state = mState.get();
+		if(state != getState(ACTION_SHOW, TARGET_RIGHT) && state != getState(ACTION_DRAG, TARGET_RIGHT) && state != getState(ACTION_OPEN, TARGET_RIGHT))
 			return;
 		
 		long duration = (long)(mRightMenuStyle.mAnimDuration * ((float)-mOffsetX/ (float)mRightMenuStyle.mSize));		
 		getRightMenuView().clearAnimation();
 		
 		if(animation && duration > 0){
-			setState(ACTION_CLOSE, TARGET_RIGHT, OP.CLOSE_RIGHT);
-			SlideAnimation anim = new SlideAnimation(false);
-			anim.setDuration(duration);
-			anim.setAnimationListener(new Animation.AnimationListener() {			
-				@Override
-				public void onAnimationStart(Animation animation) {}
-				
-				@Override
-				public void onAnimationRepeat(Animation animation) {}
-				
-				@Override
-				public void onAnimationEnd(Animation animation) {
-					setState(ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_RIGHT);
-				}
-			});
-			this.startAnimation(anim);
+			if(setState(state, ACTION_CLOSE, TARGET_RIGHT, OP.CLOSE_RIGHT))
+				mSlideAnimator.start(false, duration, OP.CLOSE_RIGHT);
 		}
 		else{
-			setState(ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_RIGHT);
+			mSlideAnimator.cancel();
+			if(!setState(state, ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_RIGHT))
+				return;
+			
 			mOffsetX = 0;
 			offsetViewX(mOffsetX);		
 		}
 	}
 	
 	public void openTopMenu(boolean animation){		
-		if(getTopMenuView() == null || (!isState(ACTION_SHOW, TARGET_CONTENT) && !isState(ACTION_DRAG, TARGET_TOP)))
+		if(ensureMenuView(mTopEdge) == null)
+			return;
+		
+		int state = mState.get();
+		if(state != getState(ACTION_SHOW, TARGET_CONTENT) && state != getState(ACTION_DRAG, TARGET_TOP) && state != getState(ACTION_CLOSE, TARGET_TOP))
 			return;
 		
 		long duration = (long)Math.abs(mTopMenuStyle.mAnimDuration * ((float)(mTopMenuStyle.mSize - mOffsetY) / (float)mTopMenuStyle.mSize));		
 		getTopMenuView().clearAnimation();
 		
 		if(animation && duration > 0){
-			setState(ACTION_OPEN, TARGET_TOP, OP.OPEN_TOP);	
-			SlideAnimation anim = new SlideAnimation(true);
-			anim.setDuration(duration);
-			anim.setAnimationListener(new Animation.AnimationListener() {			
-				@Override
-				public void onAnimationStart(Animation animation) {}
-				
-				@Override
-				public void onAnimationRepeat(Animation animation) {}
-				
-				@Override
-				public void onAnimationEnd(Animation animation) {
-					setState(ACTION_SHOW, TARGET_TOP, OP.OPEN_TOP);	
-				}
-			});
-			this.startAnimation(anim);
+			if(setState(state, ACTION_OPEN, TARGET_TOP, OP.OPEN_TOP))
+				mSlideAnimator.start(true, duration, OP.OPEN_TOP);
 		}
 		else{	
-			setState(ACTION_SHOW, TARGET_TOP, OP.OPEN_TOP);	
+			mSlideAnimator.cancel();
+			if(!setState(state, ACTION_SHOW, TARGET_TOP, OP.OPEN_TOP))
+				return;
+			
 			mOffsetY = mTopMenuStyle.mSize;
 			offsetViewY(mOffsetY);
 		}
 	}
 	
 	public void closeTopMenu(boolean animation){
-		if(getTopMenuView() == null || (!isState(ACTION_SHOW, TARGET_TOP) && !isState(ACTION_DRAG, TARGET_TOP)))
+		if(getTopMenuView() == null)
+			return;
+		
+		int state = mState.get();
+		if(state != getState(ACTION_SHOW, TARGET_TOP) && state != getState(ACTION_DRAG, TARGET_TOP) && state != getState(ACTION_OPEN, TARGET_TOP))
 			return;
 		
 		long duration = (long)(mTopMenuStyle.mAnimDuration * ((float)mOffsetY / (float)mTopMenuStyle.mSize));		
 		getTopMenuView().clearAnimation();
 		
 		if(animation && duration > 0){	
-			setState(ACTION_CLOSE, TARGET_TOP, OP.CLOSE_TOP);
-			SlideAnimation anim = new SlideAnimation(false);
-			anim.setDuration(duration);
-			anim.setAnimationListener(new Animation.AnimationListener() {			
-				@Override
-				public void onAnimationStart(Animation animation) {}
-				
-				@Override
-				public void onAnimationRepeat(Animation animation) {}
-				
-				@Override
-				public void onAnimationEnd(Animation animation) {
-					setState(ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_TOP);
-				}
-			});
-			this.startAnimation(anim);
+			if(setState(state, ACTION_CLOSE, TARGET_TOP, OP.CLOSE_TOP))
+				mSlideAnimator.start(false, duration, OP.CLOSE_TOP);
 		}
 		else{	
-			setState(ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_TOP);
+			mSlideAnimator.cancel();
+			if(!setState(state, ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_TOP))
+				return;
+			
 			mOffsetY = 0;
 			offsetViewY(mOffsetY);
 		}
 	}
 	
 	public void openBottomMenu(boolean animation){
-		if(getBottomMenuView() == null || (!isState(ACTION_SHOW, TARGET_CONTENT) && !isState(ACTION_DRAG, TARGET_BOTTOM)))
+		if(ensureMenuView(mBottomEdge) == null)
+			return;
+		
+		int state = mState.get();
+		if(state != getState(ACTION_SHOW, TARGET_CONTENT) && state != getState(ACTION_DRAG, TARGET_BOTTOM) && state != getState(ACTION_CLOSE, TARGET_BOTTOM))
 			return;
 		
 		long duration = (long)Math.abs(mBottomMenuStyle.mAnimDuration * ((float)(mOffsetY + mBottomMenuStyle.mSize) / (float)mBottomMenuStyle.mSize));		
 		getBottomMenuView().clearAnimation();
 		
 		if(animation && duration > 0){	
-			setState(ACTION_OPEN, TARGET_BOTTOM, OP.OPEN_BOTTOM);	
-			SlideAnimation anim = new SlideAnimation(true);
-			anim.setDuration(duration);
-			anim.setAnimationListener(new Animation.AnimationListener() {			
-				@Override
-				public void onAnimationStart(Animation animation) {}
-				
-				@Override
-				public void onAnimationRepeat(Animation animation) {}
-				
-				@Override
-				public void onAnimationEnd(Animation animation) {
-					setState(ACTION_SHOW, TARGET_BOTTOM, OP.OPEN_BOTTOM);
-				}
-			});
-			this.startAnimation(anim);
+			if(setState(state, ACTION_OPEN, TARGET_BOTTOM, OP.OPEN_BOTTOM))
+				mSlideAnimator.start(true, duration, OP.OPEN_BOTTOM);
 		}
 		else{	
-			setState(ACTION_SHOW, TARGET_BOTTOM, OP.OPEN_BOTTOM);
+			mSlideAnimator.cancel();
+			if(!setState(state, ACTION_SHOW, TARGET_BOTTOM, OP.OPEN_BOTTOM))
+				return;
+			
 			mOffsetY = -mBottomMenuStyle.mSize;
 			offsetViewY(mOffsetY);
 		}
 	}
 			
 	public void closeBottomMenu(boolean animation){
-		if(getBottomMenuView() == null || (!isState(ACTION_SHOW, TARGET_BOTTOM) && !isState(ACTION_DRAG, TARGET_BOTTOM)))
+		if(getBottomMenuView() == null)
+			return;
+		
+		int state = mState.get();
+		if(state != getState(ACTION_SHOW, TARGET_BOTTOM) && state != getState(ACTION_DRAG, TARGET_BOTTOM) && state != getState(ACTION_OPEN, TARGET_BOTTOM))
 			return;
 		
 		long duration = (long)(mBottomMenuStyle.mAnimDuration * ((float)-mOffsetY/ (float)mBottomMenuStyle.mSize));		
 		getBottomMenuView().clearAnimation();
 		
 		if(animation && duration > 0){
-			setState(ACTION_CLOSE, TARGET_BOTTOM, OP.CLOSE_BOTTOM);
-			SlideAnimation anim = new SlideAnimation(false);
-			anim.setDuration(duration);
-			anim.setAnimationListener(new Animation.AnimationListener() {			
-				@Override
-				public void onAnimationStart(Animation animation) {}
-				
-				@Override
-				public void onAnimationRepeat(Animation animation) {}
-				
-				@Override
-				public void onAnimationEnd(Animation animation) {
-					setState(ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_BOTTOM);
-				}
-			});
-			this.startAnimation(anim);
+			if(setState(state, ACTION_CLOSE, TARGET_BOTTOM, OP.CLOSE_BOTTOM))
+				mSlideAnimator.start(false, duration, OP.CLOSE_BOTTOM);
 		}
 		else{	
-			setState(ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_BOTTOM);
+			mSlideAnimator.cancel();
+			if(!setState(state, ACTION_SHOW, TARGET_CONTENT, OP.CLOSE_BOTTOM))
+				return;
+			
 			mOffsetY = 0;
 			offsetViewY(mOffsetY);
 		}
@@ -1422,23 +2418,47 @@ public class SlideLayout extends FrameLayout {
 		return (target << 4) | action;
 	}
 	
-	public synchronized int getState(){
-		return getState(mAction, mTarget);
+	/**
+	 * Get current state. This is safe to call from any thread.
+	 */
+	public int getState(){
+		return mState.get();
+	}
+	
+	/**
+	 * Check current state. This is safe to call from any thread.
+	 */
+	public boolean isState(int action, int target){
+		return mState.get() == getState(action, target);
+	}
+	
+	private int getCurrentAction(){
+		return getStateAction(mState.get());
 	}
 	
-	public synchronized boolean isState(int action, int target){
-		return this.mAction == action && this.mTarget == target;
+	private int getCurrentTarget(){
+		return getStateTarget(mState.get());
 	}
 	
-	private synchronized void setState(int action, int target, OP op){
-		int prev_action = this.mAction;
-		int prev_target = this.mTarget;
+	/**
+	 * Move to a new state if current state is still the expected one, so a transition decided on a stale state 
+	 * is dropped instead of overwriting a newer one. Listeners are notified without holding any lock.
+	 * @return false if state changed since expect was read.
+	 */
+	private boolean setState(int expect, int action, int target, OP op){
+		int state = getState(action, target);
+		if(!mState.compareAndSet(expect, state))
+			return false;
 		
-		this.mAction = action;
-		this.mTarget = target;
+		int prev_state = expect;
+		int prev_target = getStateTarget(prev_state);
 		
-		if(mStateListener != null && mStateListener.get() != null)
-			mStateListener.get().onStateChanged(this, getState(prev_action, prev_target), getState(action, target));		
+		mAppliedTarget = -1;
+		
+		if(mMetricsSink != null)
+			trackMetrics(action);
+		
+		dispatchStateChangedEvent(prev_state, state);
 		
 		mDownX = -1;
 		mDownY = -1;			
@@ -1448,55 +2468,191 @@ public class SlideLayout extends FrameLayout {
 				getParent().requestDisallowInterceptTouchEvent(true);
 		}
 		
+		if(action == ACTION_DRAG && mSnapshotDrag)
+			takeSnapshot();
+		else if(action == ACTION_SHOW)
+			releaseSnapshot();
+		
+		if(action == ACTION_SHOW)
+			demoteLayers();
+		else
+			promoteLayers(target);
+		
 		if(action == ACTION_SHOW){
-			if(target != TARGET_CONTENT)
-				mStartDrag = false;
-			else{
+			if(target == TARGET_CONTENT){
 				switch (prev_target) {
 					case TARGET_LEFT:
 						setVisibility(getLeftMenuView(), View.GONE);
-						setVisibility(getLeftShadowView(), View.GONE);
 						break;
 					case TARGET_RIGHT:
 						setVisibility(getRightMenuView(), View.GONE);
-						setVisibility(getRightShadowView(), View.GONE);
 						break;
 					case TARGET_TOP:
 						setVisibility(getTopMenuView(), View.GONE);
-						setVisibility(getTopShadowView(), View.GONE);
 						break;
 					case TARGET_BOTTOM:
 						setVisibility(getBottomMenuView(), View.GONE);
-						setVisibility(getBottomShadowView(), View.GONE);
 						break;
 				}
+				
+				if(prev_target != TARGET_CONTENT)
+					scheduleMenuRelease(getEdge(prev_target));
 			}				
-		}			
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Start measuring when a drag or an animation starts, report when it ends.
+	 */
+	private void trackMetrics(int action){
+		int type;
+		if(action == ACTION_DRAG)
+			type = METRICS_GESTURE;
+		else if(action == ACTION_OPEN || action == ACTION_CLOSE)
+			type = METRICS_ANIMATION;
+		else
+			type = -1;
+		
+		// a retargeted animation is still the same animation
+		if(type == mMetricsType)
+			return;
+		
+		if(mMetricsType >= 0){
+			mFrameStats.finish(System.nanoTime());
+			mMetricsSink.onFrameStats(this, mMetricsType, mFrameStats);
+		}
+		
+		mMetricsType = type;
+		if(type >= 0)
+			mFrameStats.reset(System.nanoTime());
+	}
+	
+	/**
+	 * Render moving views into hardware layers while a menu is dragged or animated,
+	 * so offsetting them only recomposes the layers instead of redrawing their content.
+	 */
+	@SuppressLint("NewApi")
+	private void promoteLayers(int target){
+		if(mLayerTarget == target || android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.HONEYCOMB || !isHardwareAccelerated())
+			return;
+		
+		demoteLayers();
+		
+		MenuStyle style = getMenuStyle(target);
+		if(style == null || !style.mHardwareLayer)
+			return;
+		
+		mLayerTarget = target;
+		View content = getContentView();
+		// content is drawn from its snapshot, a layer would only cost memory
+		mContentLayerType = mSnapshot != null && content != null ? content.getLayerType() : promoteLayer(content);
+		mMenuLayerType = promoteLayer(getMenuView(target));
+		mLayerPromotionCount++;
 	}
 	
+	private void demoteLayers(){
+		if(mLayerTarget == TARGET_CONTENT)
+			return;
+		
+		demoteLayer(getContentView(), mContentLayerType);
+		demoteLayer(getMenuView(mLayerTarget), mMenuLayerType);
+		mLayerTarget = TARGET_CONTENT;
+	}
+	
+	@SuppressLint("NewApi")
+	private int promoteLayer(View v){
+		if(v == null)
+			return View.LAYER_TYPE_NONE;
+		
+		int type = v.getLayerType();
+		if(type != View.LAYER_TYPE_HARDWARE)
+			v.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+		
+		return type;
+	}
+	
+	@SuppressLint("NewApi")
+	private void demoteLayer(View v, int type){
+		if(v == null || v.getLayerType() == type)
+			return;
+		
+		v.setLayerType(type, null);
+	}
+	
+	private void dispatchStateChangedEvent(int old_state, int new_state){
+		// listeners must see the last offset of previous state before the new state
+		flushOffsetChangedEvent();
+		
+		OnStateChangedListener listener = mStateListener == null ? null : mStateListener.get();
+		if(listener != null)
+			listener.onStateChanged(this, old_state, new_state);
+		
+		OnStateChangedListener[] listeners = mStateListeners;
+		for(int i = 0; i < listeners.length; i++)
+			listeners[i].onStateChanged(this, old_state, new_state);
+	}
+	
+	/**
+	 * Keep the latest offset and deliver it at next frame, so listeners get at most one offset event per frame.
+	 */
 	private void dispatchOffsetChangedEvent(float offsetX, float offsetY){
-		if(mStateListener != null && mStateListener.get() != null)
-			mStateListener.get().onOffsetChanged(this, offsetX, offsetY, getState(mAction, mTarget));
+		if(mStateListener == null && mStateListeners.length == 0)
+			return;
+		
+		mPendingOffsetX = offsetX;
+		mPendingOffsetY = offsetY;
+		mPendingOffsetState = mState.get();
+		
+		if(!mOffsetEventPending){
+			mOffsetEventPending = true;
+			postOnNextFrame(mOffsetEventRunnable);
+		}
+	}
+	
+	private void flushOffsetChangedEvent(){
+		if(!mOffsetEventPending)
+			return;
+		
+		removeCallbacks(mOffsetEventRunnable);
+		deliverOffsetChangedEvent();
+	}
+	
+	private void deliverOffsetChangedEvent(){
+		if(!mOffsetEventPending)
+			return;
+		
+		mOffsetEventPending = false;
+		
+		OnStateChangedListener listener = mStateListener == null ? null : mStateListener.get();
+		if(listener != null)
+			listener.onOffsetChanged(this, mPendingOffsetX, mPendingOffsetY, mPendingOffsetState);
+		
+		OnStateChangedListener[] listeners = mStateListeners;
+		for(int i = 0; i < listeners.length; i++)
+			listeners[i].onOffsetChanged(this, mPendingOffsetX, mPendingOffsetY, mPendingOffsetState);
 	}
 			
 	private void offsetViewX(int offsetX){
+		if(!beginOffset(offsetX))
+			return;
+		
+		long time = mMetricsType >= 0 ? System.nanoTime() : 0;
 		View content = getContentView();
 		View menu;
-		View shadow;
 		View overlay = getOverlayView();
 		
-		if(mTarget == TARGET_LEFT){			
+		if(getCurrentTarget() == TARGET_LEFT){			
 			menu = getLeftMenuView();
-			shadow = getLeftShadowView();
 			
 			if(mLeftMenuChild > mContentChild){
 				int left_menu = Math.min(0, offsetX - mLeftMenuStyle.mSize) + getPaddingLeft();
 				int left_content = (int)(offsetX * mLeftMenuStyle.mSlideRatio) + getPaddingLeft();
 				
-				offsetLeftAndRight(content, left_content - content.getLeft());			
-				offsetLeftAndRight(menu, left_menu - menu.getLeft());	
-				offsetLeftAndRight(overlay, left_menu + mLeftMenuStyle.mSize - overlay.getLeft());
-				offsetLeftAndRight(shadow, left_menu + mLeftMenuStyle.mSize - shadow.getLeft());		
+				offsetLeftAndRight(content, left_content - getVisualLeft(content));			
+				offsetLeftAndRight(menu, left_menu - getVisualLeft(menu));	
+				offsetLeftAndRight(overlay, left_menu + mLeftMenuStyle.mSize - getVisualLeft(overlay));
 				
 				setDim(1f - (float)offsetX / (float)mLeftMenuStyle.mSize, mLeftMenuStyle.mMaxDim);
 			}
@@ -1504,10 +2660,9 @@ public class SlideLayout extends FrameLayout {
 				int left_menu = (int)((offsetX - mLeftMenuStyle.mSize) * mLeftMenuStyle.mSlideRatio) + getPaddingLeft();
 				int left_content = offsetX + getPaddingLeft();
 				
-				offsetLeftAndRight(content, left_content - content.getLeft());						
-				offsetLeftAndRight(menu, left_menu - menu.getLeft());
-				offsetLeftAndRight(overlay, left_content - mViewWidth - overlay.getLeft());
-				offsetLeftAndRight(shadow, left_content - mLeftMenuStyle.mMenuShadow- shadow.getLeft());
+				offsetLeftAndRight(content, left_content - getVisualLeft(content));						
+				offsetLeftAndRight(menu, left_menu - getVisualLeft(menu));
+				offsetLeftAndRight(overlay, left_content - mViewWidth - getVisualLeft(overlay));
 				
 				setDim((float)offsetX / (float)mLeftMenuStyle.mSize, mLeftMenuStyle.mMaxDim);
 			}		
@@ -1515,26 +2670,22 @@ public class SlideLayout extends FrameLayout {
 			if(offsetX > 0){
 				setVisibility(overlay, View.VISIBLE);
 				setVisibility(menu, View.VISIBLE);
-				setVisibility(shadow, View.VISIBLE);
 			}
 			else{
 				setVisibility(overlay, View.GONE);
 				setVisibility(menu, View.GONE);
-				setVisibility(shadow, View.GONE);
 			}
 		}			
-		else if(mTarget == TARGET_RIGHT){
+		else if(getCurrentTarget() == TARGET_RIGHT){
 			menu = getRightMenuView();
-			shadow = getRightShadowView();
 			
 			if(mRightMenuChild > mContentChild){
 				int left_menu = Math.max(mRightMenuStyle.mMenuBorder, offsetX + mViewWidth) + getPaddingLeft();
 				int left_content = (int)(offsetX * mRightMenuStyle.mSlideRatio) + getPaddingLeft();
 				
-				offsetLeftAndRight(content, left_content - content.getLeft());
-				offsetLeftAndRight(menu, left_menu - menu.getLeft());
-				offsetLeftAndRight(overlay, left_menu - mViewWidth - overlay.getLeft());
-				offsetLeftAndRight(shadow, left_menu - mRightMenuStyle.mMenuShadow - shadow.getLeft());
+				offsetLeftAndRight(content, left_content - getVisualLeft(content));
+				offsetLeftAndRight(menu, left_menu - getVisualLeft(menu));
+				offsetLeftAndRight(overlay, left_menu - mViewWidth - getVisualLeft(overlay));
 				
 				setDim(1f - (float)-offsetX / (float)mRightMenuStyle.mSize, mRightMenuStyle.mMaxDim);
 			}
@@ -1542,10 +2693,9 @@ public class SlideLayout extends FrameLayout {
 				int left_menu = (int)((offsetX + mRightMenuStyle.mSize) * mRightMenuStyle.mSlideRatio) + mRightMenuStyle.mMenuBorder + getPaddingLeft();
 				int left_content = offsetX + getPaddingLeft();
 				
-				offsetLeftAndRight(content, left_content - content.getLeft());				
-				offsetLeftAndRight(menu, left_menu - menu.getLeft());
-				offsetLeftAndRight(overlay, left_content + mViewWidth - overlay.getLeft());
-				offsetLeftAndRight(shadow, left_content + mViewWidth - shadow.getLeft());
+				offsetLeftAndRight(content, left_content - getVisualLeft(content));				
+				offsetLeftAndRight(menu, left_menu - getVisualLeft(menu));
+				offsetLeftAndRight(overlay, left_content + mViewWidth - getVisualLeft(overlay));
 				
 				setDim((float)-offsetX / (float)mRightMenuStyle.mSize, mRightMenuStyle.mMaxDim);
 			}	
@@ -1553,36 +2703,38 @@ public class SlideLayout extends FrameLayout {
 			if(offsetX < 0){
 				setVisibility(overlay, View.VISIBLE);
 				setVisibility(menu, View.VISIBLE);
-				setVisibility(shadow, View.VISIBLE);
 			}
 			else{
 				setVisibility(overlay, View.GONE);
 				setVisibility(menu, View.GONE);
-				setVisibility(shadow, View.GONE);
 			}
 		}
 		
-		invalidate();
+		invalidateOffset();
+		
+		if(time != 0 && mMetricsType >= 0)
+			mFrameStats.addOffsetTime(System.nanoTime() - time);
 	}
 	
 	private void offsetViewY(int offsetY){
+		if(!beginOffset(offsetY))
+			return;
+		
+		long time = mMetricsType >= 0 ? System.nanoTime() : 0;
 		View content = getContentView();
 		View menu;		
-		View shadow;	
 		View overlay = getOverlayView();
 							
-		if(mTarget == TARGET_TOP){
+		if(getCurrentTarget() == TARGET_TOP){
 			menu = getTopMenuView();
-			shadow = getTopShadowView();
 			
 			if(mTopMenuChild > mContentChild){
 				int top_menu = Math.min(0, offsetY - mTopMenuStyle.mSize) + getPaddingTop();
 				int top_content = (int)(offsetY * mTopMenuStyle.mSlideRatio) + getPaddingTop();
 				
-				offsetTopAndBottom(content, top_content - content.getTop());
-				offsetTopAndBottom(menu, top_menu - menu.getTop());		
-				offsetTopAndBottom(overlay, top_menu + mTopMenuStyle.mSize - overlay.getTop());
-				offsetTopAndBottom(shadow, top_menu + mTopMenuStyle.mSize - shadow.getTop());
+				offsetTopAndBottom(content, top_content - getVisualTop(content));
+				offsetTopAndBottom(menu, top_menu - getVisualTop(menu));		
+				offsetTopAndBottom(overlay, top_menu + mTopMenuStyle.mSize - getVisualTop(overlay));
 				
 				setDim(1f - (float)offsetY / (float)mTopMenuStyle.mSize, mTopMenuStyle.mMaxDim);
 			}
@@ -1590,10 +2742,9 @@ public class SlideLayout extends FrameLayout {
 				int top_menu = (int)((offsetY - mTopMenuStyle.mSize) * mTopMenuStyle.mSlideRatio) + getPaddingTop();
 				int top_content = offsetY + getPaddingTop();
 				
-				offsetTopAndBottom(content, top_content - content.getTop());
-				offsetTopAndBottom(menu, top_menu - menu.getTop());		
-				offsetTopAndBottom(overlay, top_content - mViewHeight - overlay.getTop());
-				offsetTopAndBottom(shadow, top_content - mTopMenuStyle.mMenuShadow - shadow.getTop());
+				offsetTopAndBottom(content, top_content - getVisualTop(content));
+				offsetTopAndBottom(menu, top_menu - getVisualTop(menu));		
+				offsetTopAndBottom(overlay, top_content - mViewHeight - getVisualTop(overlay));
 				
 				setDim((float)offsetY / (float)mTopMenuStyle.mSize, mTopMenuStyle.mMaxDim);
 			}
@@ -1601,26 +2752,22 @@ public class SlideLayout extends FrameLayout {
 			if(offsetY > 0){
 				setVisibility(overlay, View.VISIBLE);
 				setVisibility(menu, View.VISIBLE);
-				setVisibility(shadow, View.VISIBLE);
 			}
 			else{
 				setVisibility(overlay, View.GONE);
 				setVisibility(menu, View.GONE);
-				setVisibility(shadow, View.GONE);
 			}
 		}
-		else if(mTarget == TARGET_BOTTOM){
+		else if(getCurrentTarget() == TARGET_BOTTOM){
 			menu = getBottomMenuView();		
-			shadow = getBottomShadowView();
 			
 			if(mBottomMenuChild > mContentChild){
 				int top_menu = Math.max(mBottomMenuStyle.mMenuBorder, offsetY + mViewHeight) + getPaddingTop();
 				int top_content = (int)(offsetY * mBottomMenuStyle.mSlideRatio) + getPaddingTop();
 				
-				offsetTopAndBottom(content, top_content - content.getTop());
-				offsetTopAndBottom(menu, top_menu - menu.getTop());
-				offsetTopAndBottom(overlay, top_menu - mViewHeight - overlay.getTop());	
-				offsetTopAndBottom(shadow, top_menu - mBottomMenuStyle.mMenuShadow - shadow.getTop());		
+				offsetTopAndBottom(content, top_content - getVisualTop(content));
+				offsetTopAndBottom(menu, top_menu - getVisualTop(menu));
+				offsetTopAndBottom(overlay, top_menu - mViewHeight - getVisualTop(overlay));	
 				
 				setDim(1f - (float)-offsetY / (float)mBottomMenuStyle.mSize, mBottomMenuStyle.mMaxDim);
 			}
@@ -1628,10 +2775,9 @@ public class SlideLayout extends FrameLayout {
 				int top_menu = (int)((offsetY + mBottomMenuStyle.mSize) * mBottomMenuStyle.mSlideRatio + mBottomMenuStyle.mMenuBorder) + getPaddingTop();
 				int top_content = offsetY + getPaddingTop();
 				
-				offsetTopAndBottom(content, top_content - content.getTop());				
-				offsetTopAndBottom(menu, top_menu - menu.getTop());
-				offsetTopAndBottom(overlay, top_content + mViewHeight - overlay.getTop());	
-				offsetTopAndBottom(shadow, top_content + mViewHeight - shadow.getTop());
+				offsetTopAndBottom(content, top_content - getVisualTop(content));				
+				offsetTopAndBottom(menu, top_menu - getVisualTop(menu));
+				offsetTopAndBottom(overlay, top_content + mViewHeight - getVisualTop(overlay));	
 				
 				setDim((float)-offsetY / (float)mBottomMenuStyle.mSize, mBottomMenuStyle.mMaxDim);
 			}
@@ -1639,20 +2785,70 @@ public class SlideLayout extends FrameLayout {
 			if(offsetY < 0){
 				setVisibility(overlay, View.VISIBLE);
 				setVisibility(menu, View.VISIBLE);
-				setVisibility(shadow, View.VISIBLE);
 			}
 			else{
 				setVisibility(overlay, View.GONE);
 				setVisibility(menu, View.GONE);
-				setVisibility(shadow, View.GONE);
 			}
 		}
 				
-		invalidate();
+		invalidateOffset();
+		
+		if(time != 0 && mMetricsType >= 0)
+			mFrameStats.addOffsetTime(System.nanoTime() - time);
+	}
+	
+	/**
+	 * @return false if children are already at this offset of current target, so there is nothing to move, dim or draw.
+	 */
+	private boolean beginOffset(int offset){
+		if(mAppliedTarget == getCurrentTarget() && mAppliedOffset == offset){
+			mOffsetSkipCount++;
+			return false;
+		}
+		
+		mAppliedTarget = getCurrentTarget();
+		mAppliedOffset = offset;
+		mOffsetUpdateCount++;
+		mDirtyRect.setEmpty();
+		return true;
+	}
+	
+	/**
+	 * Invalidate only the area moved children left and entered, widened by the shadow drawn next to them.
+	 * Canvas scrim dims everything outside of the menu, so it still needs the whole view.
+	 */
+	private void invalidateOffset(){
+		if(mCanvasScrim){
+			invalidate();
+			return;
+		}
+		
+		Rect dirty = mDirtyRect;
+		if(dirty.isEmpty())
+			return;
+		
+		Edge edge = getEdge(getCurrentTarget());
+		int shadow = edge != null && edge.style != null ? edge.style.mMenuShadow : 0;
+		dirty.inset(-shadow, -shadow);
+		invalidate(dirty.left, dirty.top, dirty.right, dirty.bottom);
 	}
 		
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    	// size menus before FrameLayout measures them, instead of after layout
+    	if(MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED && MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.UNSPECIFIED)
+    		updateGeometry(MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight(), MeasureSpec.getSize(heightMeasureSpec) - getPaddingTop() - getPaddingBottom());
+    	
+    	super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+    
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {    	
+    	long time = mMetricsType >= 0 ? System.nanoTime() : 0;
+    	mLayoutPassCount++;
+    	mAppliedTarget = -1;
+    	
     	right -= left + getPaddingRight();
     	bottom -= top + getPaddingBottom();
     	left = getPaddingLeft();
@@ -1669,8 +2865,8 @@ public class SlideLayout extends FrameLayout {
     		setShadow(mViewWidth, mViewHeight);   
     		
     		// if menu already opened, then offset view correctly
-    		if(mAction == ACTION_SHOW){
-    			switch (mTarget) {
+    		if(getCurrentAction() == ACTION_SHOW){
+    			switch (getCurrentTarget()) {
 					case TARGET_LEFT:
 						mOffsetX = mLeftMenuStyle.mSize;
 						offsetViewX(mOffsetX);
@@ -1691,15 +2887,33 @@ public class SlideLayout extends FrameLayout {
     		}
     	}
     	    
+    	// in translation mode children stay at rest positions, the offset is applied by their translation
+    	if(mTranslationMode)
+    		layoutAtRest(left, top, right, bottom);
+    	else
+    		layoutAtOffset(left, top, right, bottom);
+    	
+    	// children were placed from mOffsetX/mOffsetY, but dim and visibility weren't applied
+    	mAppliedTarget = -1;
+    	
+    	// translations only change if rest positions did, so a relayout of content doesn't move anything
+    	if(mTranslationMode)
+    		applyTranslation();
+    	
+    	if(time != 0 && mMetricsType >= 0){
+    		mFrameStats.mLayoutTime += System.nanoTime() - time;
+    		mFrameStats.mLayoutCount++;
+    	}
+    }
+    
+    private void layoutAtOffset(int left, int top, int right, int bottom){
     	View menu;
-    	View shadow;
 		View content = getContentView();		
 		View overlay = getOverlayView();
 		
-    	switch (mTarget) {
+    	switch (getCurrentTarget()) {
 			case TARGET_LEFT:
 				menu = getLeftMenuView();				
-				shadow = getLeftShadowView();
 								
 				if(mLeftMenuChild > mContentChild){
 					int right_menu = left + Math.min(mLeftMenuStyle.mSize, mOffsetX);
@@ -1707,7 +2921,6 @@ public class SlideLayout extends FrameLayout {
 					
 					layout(menu, right_menu - mLeftMenuStyle.mSize, top, right_menu, bottom);					
 					layout(content, left_content, top, left_content + mViewWidth, bottom);					
-					layout(shadow, right_menu, top, right_menu + mLeftMenuStyle.mMenuShadow, bottom); 
 	    			layout(overlay, right_menu, top, right_menu + mViewWidth, bottom);	
 				}
 				else{
@@ -1716,20 +2929,17 @@ public class SlideLayout extends FrameLayout {
 					
 					layout(menu, left_menu, top, left_menu + mLeftMenuStyle.mSize, bottom);
 					layout(content, left_content, top, left_content + mViewWidth, bottom);	    			
-					layout(shadow, left_content - mLeftMenuStyle.mMenuShadow, top, left_content, bottom); 
 	    			layout(overlay, left_content - mViewWidth, top, left_content, bottom);
 				}
 				break;			
 			case TARGET_RIGHT:
 				menu = getRightMenuView();				
-				shadow = getRightShadowView();
 				if(mRightMenuChild > mContentChild){
 					int left_menu = left + Math.max(mRightMenuStyle.mMenuBorder, mOffsetX + mViewWidth); 
 					int left_content = left + (int)(mOffsetX * mRightMenuStyle.mSlideRatio); 
 					
 	    			layout(menu, left_menu, top, left_menu + mRightMenuStyle.mSize, bottom);
 	    			layout(content, left_content, top, left_content + mViewWidth, bottom);	    			
-	    			layout(shadow, left_menu - mRightMenuStyle.mMenuShadow, top, left_menu, bottom); 
 	    			layout(overlay, left_menu - mViewWidth, top, left_menu, bottom);
 				}
 				else{
@@ -1738,20 +2948,17 @@ public class SlideLayout extends FrameLayout {
 					
 					layout(menu, left_menu, top, left_menu + mRightMenuStyle.mSize, bottom);
 					layout(content, right_content - mViewWidth, top, right_content, bottom);
-					layout(shadow, right_content, top, right_content + mRightMenuStyle.mMenuShadow, bottom); 
 					layout(overlay, right_content, top, right_content + mViewWidth, bottom);
 				}
 				break;
 			case TARGET_TOP:
 				menu = getTopMenuView();				
-				shadow = getTopShadowView();
 				if(mTopMenuChild > mContentChild){
 					int bottom_menu = top + Math.min(mTopMenuStyle.mSize, mOffsetY);    
 					int top_content = top + (int)(mOffsetY * mTopMenuStyle.mSlideRatio);   
 					
 	    			layout(menu, left, bottom_menu - mTopMenuStyle.mSize, right, bottom_menu);
 	    			layout(content, left, top_content, right, top_content + mViewHeight);	    			
-	    			layout(shadow, left, bottom_menu, right, bottom_menu + mTopMenuStyle.mMenuShadow);
 	    			layout(overlay, left, bottom_menu, right, bottom_menu + mViewHeight);
 				}
 				else{
@@ -1760,20 +2967,17 @@ public class SlideLayout extends FrameLayout {
 					
 					layout(menu, left, top_menu, right, top_menu + mTopMenuStyle.mSize);					
 					layout(content, left, top_content, right, top_content + mViewHeight);					
-					layout(shadow, left, top_content - mTopMenuStyle.mMenuShadow, right, top_content);
 					layout(overlay, left, top_content - mViewHeight, right, top_content);
 				}
 				break;
 			case TARGET_BOTTOM:
 				menu = getBottomMenuView();				
-				shadow = getBottomShadowView();
 				if(mBottomMenuChild > mContentChild){
 					int top_menu = top + Math.max(mBottomMenuStyle.mMenuBorder, mOffsetY + mViewHeight);
 					int top_content = top + (int)(mOffsetY * mBottomMenuStyle.mSlideRatio);
 					
 	    			layout(menu, left, top_menu, right, top_menu + mBottomMenuStyle.mSize);
 	    			layout(content, left, top_content, right, top_content + mViewHeight);	    			
-	    			layout(shadow, left, top_menu - mBottomMenuStyle.mMenuShadow, right, top_menu); 
 	    			layout(overlay, left, top_menu - mViewHeight, right, top_menu); 
 				}
 				else{
@@ -1782,7 +2986,6 @@ public class SlideLayout extends FrameLayout {
 					
 					layout(menu, left, top_menu, right, top_menu + mBottomMenuStyle.mSize);
 					layout(content, left, bottom_content - mViewHeight, right, bottom_content);
-					layout(shadow, left, bottom_content, right, bottom_content + mBottomMenuStyle.mMenuShadow); 
 					layout(overlay, left, bottom_content, right, bottom_content + mViewHeight); 
 				}
 				break;
@@ -1794,20 +2997,128 @@ public class SlideLayout extends FrameLayout {
 		}    	
     }
     
+    /**
+     * Lay out every menu at its closed position and content and overlay over SlideLayout. Translation moves them from there.
+     */
+    private void layoutAtRest(int left, int top, int right, int bottom){
+    	MenuStyle style;
+    	
+    	layout(getContentView(), left, top, right, bottom);
+    	layout(getOverlayView(), left, top, right, bottom);
+    	
+    	style = mLeftMenuStyle;
+    	if(style != null){
+    		int left_menu = mLeftMenuChild > mContentChild ? left - style.mSize : left + (int)(-style.mSize * style.mSlideRatio);
+    		layout(getLeftMenuView(), left_menu, top, left_menu + style.mSize, bottom);
+    	}
+    	
+    	style = mRightMenuStyle;
+    	if(style != null){
+    		int left_menu = mRightMenuChild > mContentChild ? left + Math.max(style.mMenuBorder, mViewWidth) : left + (int)(style.mSize * style.mSlideRatio + style.mMenuBorder);
+    		layout(getRightMenuView(), left_menu, top, left_menu + style.mSize, bottom);
+    	}
+    	
+    	style = mTopMenuStyle;
+    	if(style != null){
+    		int top_menu = mTopMenuChild > mContentChild ? top - style.mSize : top + (int)(-style.mSize * style.mSlideRatio);
+    		layout(getTopMenuView(), left, top_menu, right, top_menu + style.mSize);
+    	}
+    	
+    	style = mBottomMenuStyle;
+    	if(style != null){
+    		int top_menu = mBottomMenuChild > mContentChild ? top + Math.max(style.mMenuBorder, mViewHeight) : top + (int)(style.mSize * style.mSlideRatio + style.mMenuBorder);
+    		layout(getBottomMenuView(), left, top_menu, right, top_menu + style.mSize);
+    	}
+    }
+    
+    /**
+     * Re-apply current offset after a layout pass in translation mode.
+     */
+    private void applyTranslation(){
+    	switch (getCurrentTarget()) {
+			case TARGET_LEFT:
+			case TARGET_RIGHT:
+				offsetViewX(mOffsetX);
+				break;
+			case TARGET_TOP:
+			case TARGET_BOTTOM:
+				offsetViewY(mOffsetY);
+				break;
+			default:
+				setTranslation(getContentView(), 0, 0);
+				setTranslation(getOverlayView(), 0, 0);
+				break;
+		}
+    }
+    
+    @SuppressLint("NewApi")
     private void offsetLeftAndRight(View v, int offset){
-    	if(v == null)
+    	if(v == null || offset == 0)
     		return;
     	
-		v.offsetLeftAndRight(offset);
+    	addDirty(v);
+    	if(mTranslationMode)
+    		v.setTranslationX(v.getTranslationX() + offset);
+    	else
+    		v.offsetLeftAndRight(offset);
+		addDirty(v);
 	}
     
+    @SuppressLint("NewApi")
     private void offsetTopAndBottom(View v, int offset){
-    	if(v == null)
+    	if(v == null || offset == 0)
     		return;
     	
-		v.offsetTopAndBottom(offset);
+    	addDirty(v);
+    	if(mTranslationMode)
+    		v.setTranslationY(v.getTranslationY() + offset);
+    	else
+    		v.offsetTopAndBottom(offset);
+		addDirty(v);
 	}
     
+    @SuppressLint("NewApi")
+    private void setTranslation(View v, float x, float y){
+    	if(v == null)
+    		return;
+    	
+    	v.setTranslationX(x);
+    	v.setTranslationY(y);
+    }
+    
+    /*
+     * Position of a child where it's drawn, its layout position plus translation. 
+     * Children are only translated in translation mode, which requires API 11.
+     */
+    
+    @SuppressLint("NewApi")
+    private int getVisualLeft(View v){
+    	return mTranslationMode ? v.getLeft() + (int)v.getTranslationX() : v.getLeft();
+    }
+    
+    @SuppressLint("NewApi")
+    private int getVisualTop(View v){
+    	return mTranslationMode ? v.getTop() + (int)v.getTranslationY() : v.getTop();
+    }
+    
+    @SuppressLint("NewApi")
+    private int getVisualRight(View v){
+    	return mTranslationMode ? v.getRight() + (int)v.getTranslationX() : v.getRight();
+    }
+    
+    @SuppressLint("NewApi")
+    private int getVisualBottom(View v){
+    	return mTranslationMode ? v.getBottom() + (int)v.getTranslationY() : v.getBottom();
+    }
+    
+    private void addDirty(View v){
+    	// bounds of a transformed child aren't where it's drawn
+    	if(hasTransform(v))
+    		mDirtyRect.union(0, 0, getWidth(), getHeight());
+    	else
+    		mDirtyRect.union(getVisualLeft(v), getVisualTop(v), getVisualRight(v), getVisualBottom(v));
+    }
+    
     private void layout(View v, int l, int t, int r, int b){
     	if(v == null || v.getVisibility() == View.GONE)
     		return;
@@ -1815,19 +3126,34 @@ public class SlideLayout extends FrameLayout {
     	v.layout(l, t, r, b);
     }
     
+    /**
+     * In translation mode a hidden child is INVISIBLE instead of GONE, so it stays laid out and revealing it needs no layout pass.
+     * Placeholders of lazy menus stay GONE, a ViewStub would inflate itself when made INVISIBLE.
+     */
     private void setVisibility(View v, int visibility){
     	if(v == null)
     		return;
     	
-    	if(visibility == View.GONE)
+    	if(visibility == View.GONE){
     		v.clearAnimation();
+    		if(mTranslationMode && !isPlaceholder(v))
+    			visibility = View.INVISIBLE;
+    	}
     	
 		v.setVisibility(visibility);
 	}
+    
+    private boolean isPlaceholder(View v){
+    	for(Edge edge : mEdges)
+    		if(edge.getMenuView() == v)
+    			return isMenuPlaceholder(edge, v);
+    	
+    	return v instanceof ViewStub;
+    }
         
     private boolean cancelMotionEvent(MotionEvent event, View mDispatchView){
     	MotionEvent cancelEvent = MotionEvent.obtain(event);
-        cancelEvent.setAction(MotionEvent.ACTION_CANCEL | (event.getActionIndex() << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
+        cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
         
         boolean result;
         if(mDispatchView != null)
@@ -1841,157 +3167,829 @@ public class SlideLayout extends FrameLayout {
     }
     
     /**
-     * 
-     * @param progress 1f: no Dim, 0f: maximum Dim
-     * @param maxDim maximum Dim value
+     * Update alpha of the overlay's drawable in place, so no object is allocated per frame.
+     * @param progress 1f: no Dim, 0f: maximum Dim
+     * @param maxDim maximum Dim value
+     */
+    private void setDim(float progress, float maxDim){
+    	int alpha = (int)((1f - Math.max(0f, Math.min(1f,  progress))) * maxDim * 255);
+    	
+    	if(mCanvasScrim){
+    		mDimAlpha = alpha;
+    		return;
+    	}
+    	
+    	View v = getOverlayView();
+    	if(v == null)
+    		return;
+    	
+    	if(alpha != mDimAlpha){
+    		mDimAlpha = alpha;
+    		mDimDrawable.setAlpha(alpha);
+    	}
+		
+		setVisibility(v, progress == 1f ? View.GONE : View.VISIBLE);
+	}
+    
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+    	if(mMetricsType >= 0)
+    		mFrameStats.onFrame(System.nanoTime());
+    	
+    	if(mDebugOverdraw)
+    		mDrawnArea = getBackground() == null ? 0 : (long)getWidth() * getHeight();
+    	
+    	super.dispatchDraw(canvas);
+    	
+    	// the same z-order the overlay view and shadow views had: above all children, shadow above dim
+    	drawScrim(canvas);
+    	drawShadow(canvas);
+    	
+    	if(mDebugOverdraw)
+    		drawOverdraw(canvas);
+    }
+    
+    private void drawOverdraw(Canvas canvas){
+    	long area = (long)getWidth() * getHeight();
+    	mOverdrawFactor = area == 0 ? 0f : (float)mDrawnArea / area;
+    	
+    	if(mDebugPaint == null){
+    		mDebugPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    		mDebugPaint.setColor(0xFFFFFFFF);
+    		mDebugPaint.setTextSize(14 * getResources().getDisplayMetrics().density);
+    		mDebugPaint.setShadowLayer(2f, 0f, 0f, 0xFF000000);
+    		mDebugText = new StringBuilder();
+    	}
+    	
+    	// two decimals without String.format, so debug frames don't allocate
+    	int percent = Math.round(mOverdrawFactor * 100);
+    	mDebugText.setLength(0);
+    	mDebugText.append("overdraw ").append(percent / 100).append('.');
+    	if(percent % 100 < 10)
+    		mDebugText.append('0');
+    	mDebugText.append(percent % 100).append('x');
+    	
+    	canvas.drawText(mDebugText, 0, mDebugText.length(), getPaddingLeft() + mDebugPaint.getTextSize() / 2, getPaddingTop() + mDebugPaint.getTextSize() * 1.5f, mDebugPaint);
+    }
+    
+    /**
+     * Draw the shadow of current menu next to its moving edge. The drawable keeps its bounds and canvas is translated instead,
+     * so the gradient shader is created once and reused by every frame.
+     */
+    private void drawShadow(Canvas canvas){
+    	if(getCurrentTarget() == TARGET_CONTENT)
+    		return;
+    	
+    	Edge edge = getEdge(getCurrentTarget());
+    	View menu = edge.getMenuView();
+    	View content = getContentView();
+    	MenuStyle style = edge.style;
+    	if(style == null || style.mMenuShadow <= 0 || menu == null || content == null || menu.getVisibility() != View.VISIBLE)
+    		return;
+    	
+    	// the view above casts shadow on the view below: a menu above toward content, a content above toward menu
+    	boolean above = edge.isMenuAbove();
+    	int direction = above ? edge.sign : -edge.sign;
+    	int size = style.mMenuShadow;
+    	Drawable shadow = edge.getShadowDrawable(direction);
+    	int x;
+    	int y;
+    	int width;
+    	int height;
+    	
+    	if(edge.horizontal){
+    		int border = above ? (edge.sign > 0 ? getVisualRight(menu) : getVisualLeft(menu)) : (edge.sign > 0 ? getVisualLeft(content) : getVisualRight(content));
+    		x = direction > 0 ? border : border - size;
+    		y = getPaddingTop();
+    		width = size;
+    		height = getHeight() - getPaddingTop() - getPaddingBottom();
+    	}
+    	else{
+    		int border = above ? (edge.sign > 0 ? getVisualBottom(menu) : getVisualTop(menu)) : (edge.sign > 0 ? getVisualTop(content) : getVisualBottom(content));
+    		x = getPaddingLeft();
+    		y = direction > 0 ? border : border - size;
+    		width = getWidth() - getPaddingLeft() - getPaddingRight();
+    		height = size;
+    	}
+    	
+    	Rect bounds = shadow.getBounds();
+    	if(bounds.width() != width || bounds.height() != height)
+    		shadow.setBounds(0, 0, width, height);
+    	
+    	int count = canvas.save();
+    	canvas.translate(x, y);
+    	shadow.draw(canvas);
+    	canvas.restoreToCount(count);
+    	
+    	if(mDebugOverdraw)
+    		mDrawnArea += (long)width * height;
+    }
+    
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+    	Rect rect = mExposedRect;
+    	int exposed = getExposedRect(child, rect);
+    	if(exposed == EXPOSED_NONE)
+    		return false;
+    	
+    	if(mDebugOverdraw)
+    		mDrawnArea += (long)rect.width() * rect.height();
+    	
+    	int count = 0;
+    	if(exposed == EXPOSED_PART){
+    		count = canvas.save();
+    		canvas.clipRect(rect);
+    	}
+    	
+    	boolean result;
+    	if(mSnapshot != null && child == getContentView()){
+    		canvas.drawBitmap(mSnapshot, getVisualLeft(child), getVisualTop(child), null);
+    		result = false;
+    	}
+    	else
+    		result = super.drawChild(canvas, child, drawingTime);
+    	
+    	if(exposed == EXPOSED_PART)
+    		canvas.restoreToCount(count);
+    	
+    	return result;
+    }
+    
+    /**
+     * Compute the visible part of a child. A child outside of SlideLayout isn't drawn, 
+     * and the part of the lower one of menu and content that's covered by the opaque upper one is clipped out.
+     * @return {@link #EXPOSED_NONE}, {@link #EXPOSED_PART} with the part in rect, or {@link #EXPOSED_ALL}.
+     */
+    private int getExposedRect(View child, Rect rect){
+    	rect.set(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+    	
+    	// bounds of a transformed child aren't where it's drawn
+    	if(hasTransform(child))
+    		return EXPOSED_ALL;
+    	
+    	if(!rect.intersect(getVisualLeft(child), getVisualTop(child), getVisualRight(child), getVisualBottom(child)))
+    		return EXPOSED_NONE;
+    	
+    	if(getCurrentTarget() == TARGET_CONTENT)
+    		return EXPOSED_ALL;
+    	
+    	Edge edge = getEdge(getCurrentTarget());
+    	View menu = edge.getMenuView();
+    	View content = getContentView();
+    	View cover;
+    	if(child == content)
+    		cover = edge.isMenuAbove() ? menu : null;
+    	else if(child == menu)
+    		cover = edge.isMenuAbove() ? null : content;
+    	else
+    		return EXPOSED_ALL;
+    	
+    	if(!isOpaque(cover))
+    		return EXPOSED_ALL;
+    	
+    	int left = rect.left;
+    	int top = rect.top;
+    	int right = rect.right;
+    	int bottom = rect.bottom;
+    	int coverLeft = getVisualLeft(cover);
+    	int coverTop = getVisualTop(cover);
+    	int coverRight = getVisualRight(cover);
+    	int coverBottom = getVisualBottom(cover);
+    	
+    	// menu and content span the same cross axis, so the covered part is always at one side of the child
+    	if(coverTop <= top && coverBottom >= bottom){
+    		if(coverLeft <= left)
+    			left = Math.max(left, coverRight);
+    		else if(coverRight >= right)
+    			right = Math.min(right, coverLeft);
+    	}
+    	else if(coverLeft <= left && coverRight >= right){
+    		if(coverTop <= top)
+    			top = Math.max(top, coverBottom);
+    		else if(coverBottom >= bottom)
+    			bottom = Math.min(bottom, coverTop);
+    	}
+    	
+    	if(left >= right || top >= bottom)
+    		return EXPOSED_NONE;
+    	
+    	if(left == rect.left && top == rect.top && right == rect.right && bottom == rect.bottom)
+    		return EXPOSED_ALL;
+    	
+    	rect.set(left, top, right, bottom);
+    	return EXPOSED_PART;
+    }
+    
+    @SuppressLint("NewApi")
+    private boolean isOpaque(View v){
+    	if(v == null || v.getVisibility() != View.VISIBLE || hasTransform(v))
+    		return false;
+    	
+    	if(android.os.Build.VERSION.SDK_INT >= 11 && v.getAlpha() < 1f)
+    		return false;
+    	
+    	if(v.isOpaque())
+    		return true;
+    	
+    	Drawable background = v.getBackground();
+    	return background != null && background.getOpacity() == PixelFormat.OPAQUE;
+    }
+    
+    @SuppressLint("NewApi")
+    private boolean hasTransform(View v){
+    	if(v.getAnimation() != null)
+    		return true;
+    	
+    	if(android.os.Build.VERSION.SDK_INT < 11)
+    		return false;
+    	
+    	// in translation mode, translation is a part of the visual position
+    	if(mTranslationMode)
+    		return v.getScaleX() != 1f || v.getScaleY() != 1f || v.getRotation() != 0f || v.getRotationX() != 0f || v.getRotationY() != 0f;
+    	
+    	return !v.getMatrix().isIdentity();
+    }
+    
+    /**
+     * Draw the dim rectangle over the area that isn't covered by current menu.
+     */
+    private void drawScrim(Canvas canvas){
+    	if(!mCanvasScrim || mDimAlpha <= 0 || getCurrentTarget() == TARGET_CONTENT)
+    		return;
+    	
+    	View content = getContentView();
+    	if(content == null)
+    		return;
+    	
+    	int left = getPaddingLeft();
+    	int top = getPaddingTop();
+    	int right = getWidth() - getPaddingRight();
+    	int bottom = getHeight() - getPaddingBottom();
+    	View menu;
+    	
+    	switch (getCurrentTarget()) {
+			case TARGET_LEFT:
+				menu = getLeftMenuView();
+				if(menu == null || menu.getVisibility() != View.VISIBLE)
+					return;
+				if(mLeftMenuChild > mContentChild)
+					left = getVisualRight(menu);
+				else
+					right = getVisualLeft(content);
+				break;
+			case TARGET_RIGHT:
+				menu = getRightMenuView();
+				if(menu == null || menu.getVisibility() != View.VISIBLE)
+					return;
+				if(mRightMenuChild > mContentChild)
+					right = getVisualLeft(menu);
+				else
+					left = getVisualRight(content);
+				break;
+			case TARGET_TOP:
+				menu = getTopMenuView();
+				if(menu == null || menu.getVisibility() != View.VISIBLE)
+					return;
+				if(mTopMenuChild > mContentChild)
+					top = getVisualBottom(menu);
+				else
+					bottom = getVisualTop(content);
+				break;
+			case TARGET_BOTTOM:
+				menu = getBottomMenuView();
+				if(menu == null || menu.getVisibility() != View.VISIBLE)
+					return;
+				if(mBottomMenuChild > mContentChild)
+					bottom = getVisualTop(menu);
+				else
+					top = getVisualBottom(content);
+				break;
+		}
+    	
+    	if(left >= right || top >= bottom)
+    		return;
+    	
+    	mScrimRect.set(left, top, right, bottom);
+    	mScrimPaint.setAlpha(mDimAlpha);
+    	canvas.drawRect(mScrimRect, mScrimPaint);
+    	
+    	if(mDebugOverdraw)
+    		mDrawnArea += (long)mScrimRect.width() * mScrimRect.height();
+    }
+    
+    /**
+     * Run action at the next display frame. Use Choreographer from Jelly Bean, fallback to a fixed delay on older devices.
      */
-    private void setDim(float progress, float maxDim){
-    	View v = getOverlayView();
-    	if(v == null)
-    		return;
-    	
-    	v.clearAnimation();
+    @SuppressLint("NewApi")
+    private void postOnNextFrame(Runnable action){
+    	if(android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN)
+    		postOnAnimation(action);
+    	else
+    		postDelayed(action, FRAME_DELAY);
+    }
+    
+    @Override
+    protected void onAttachedToWindow() {
+    	super.onAttachedToWindow();
+    	if(mPreInflateMenus)
+    		schedulePreInflation();
+    	registerTrimCallbacks();
     	
-    	ChangeAlphaAnimation anim = new ChangeAlphaAnimation((1f - Math.max(0f, Math.min(1f,  progress))) * maxDim);
-		v.startAnimation(anim);
-		
-		v.setVisibility(progress == 1f ? View.GONE : View.VISIBLE);
-	}
+    	// restart the retain timeout of menus that are still closed
+    	for(Edge edge : mEdges){
+    		View menu = edge.getMenuView();
+    		if(edge.style != null && menu != null && getCurrentTarget() != edge.target && !isMenuPlaceholder(edge, menu))
+    			scheduleMenuRelease(edge);
+    	}
+    }
     
-    private class SlideAnimation extends Animation {
-		
-		private int distance;
-		private int start;
-		private boolean isOpen;
-				
-		public SlideAnimation(boolean isOpen){
-			this.isOpen = isOpen;
-			switch (mTarget) {
+    @Override
+    protected void onDetachedFromWindow() {
+    	cancelPreInflation();
+    	unregisterTrimCallbacks();
+    	releaseSnapshot();
+    	removeCallbacks(mDragFrameRunnable);
+    	mDragFramePending = false;
+    	mPendingDragEdge = null;
+    	mDragPosition.reset();
+    	if(mVelocityTracker != null){
+    		mVelocityTracker.recycle();
+    		mVelocityTracker = null;
+    	}
+    	mSlideAnimator.end();
+    	flushOffsetChangedEvent();
+    	// a release must not swap views in a detached tree
+    	for(Edge edge : mEdges)
+    		removeCallbacks(edge.releaseRunnable);
+    	releaseNestedDrag();
+    	super.onDetachedFromWindow();
+    }
+    
+    /**
+     * Move menu to its opened or closed position, update offset once per frame.
+     * Calling start() while running retargets the animation from current offset, so menu never jumps.
+     */
+    private class SlideAnimator implements Runnable {
+    	
+    	private int target;
+    	private boolean isOpen;
+    	private OP op;
+    	private int start;
+    	private int end;
+    	private long startTime;
+    	private long duration;
+    	private Interpolator interpolator;
+    	private boolean running = false;
+    	
+    	private boolean useSpring = false;
+    	private final Spring spring = new Spring();
+    	private long frameTime;
+    	
+    	public void start(boolean isOpen, long duration, OP op){
+    		MenuStyle style = getMenuStyle(op.target);
+    		
+    		this.useSpring = false;
+    		this.duration = duration;
+    		this.interpolator = style.getInterpolator();
+    		this.startTime = AnimationUtils.currentAnimationTimeMillis();
+    		
+    		setup(op.target, isOpen, op, style);
+    	}
+    	
+    	/**
+    	 * Settle menu by a damped spring, starting with the velocity of a fling.
+    	 * @param velocity velocity of offset in pixels per second
+    	 */
+    	public void fling(boolean isOpen, float velocity, OP op){
+    		int target = op.target;
+    		MenuStyle style = getMenuStyle(target);
+    		
+    		this.useSpring = true;
+    		this.frameTime = AnimationUtils.currentAnimationTimeMillis();
+    		
+    		setup(target, isOpen, op, style);
+    		
+    		// spring can overshoot the opened position only as far as dragging could, and never pass the closed position
+    		boolean horizontal = target == TARGET_LEFT || target == TARGET_RIGHT;
+    		int viewSize = horizontal ? mViewWidth : mViewHeight;
+    		int limit = style.mOverDrag ? viewSize - style.mMenuOverDragBorder : style.mSize;
+    		if(target == TARGET_LEFT || target == TARGET_TOP)
+    			spring.start(start, velocity, end, style.mSpringStiffness, style.mSpringDamping, 0, Math.max(limit, start));
+    		else
+    			spring.start(start, velocity, end, style.mSpringStiffness, style.mSpringDamping, Math.min(-limit, start), 0);
+    	}
+    	
+    	private void setup(int target, boolean isOpen, OP op, MenuStyle style){
+    		this.target = target;
+    		this.isOpen = isOpen;
+    		this.op = op;
+    		
+    		switch (target) {
 				case TARGET_LEFT:
-					distance = isOpen ? mLeftMenuStyle.mSize - mOffsetX : mOffsetX;
-					start = mOffsetX;
-					setInterpolator(mLeftMenuStyle.getInterpolator());
-					break;
 				case TARGET_RIGHT:
-					distance = isOpen ? mRightMenuStyle.mSize + mOffsetX :  -mOffsetX;
 					start = mOffsetX;
-					setInterpolator(mRightMenuStyle.getInterpolator());
 					break;
 				case TARGET_TOP:
-					distance = isOpen ? mTopMenuStyle.mSize - mOffsetY : mOffsetY;
-					start = mOffsetY;
-					setInterpolator(mTopMenuStyle.getInterpolator());
-					break;
 				case TARGET_BOTTOM:
-					distance = isOpen ? mBottomMenuStyle.mSize + mOffsetY : -mOffsetY;
 					start = mOffsetY;
-					setInterpolator(mBottomMenuStyle.getInterpolator());
 					break;
 			}
+    		
+    		if(!isOpen)
+    			end = 0;
+    		else
+    			end = (target == TARGET_LEFT || target == TARGET_TOP) ? style.mSize : -style.mSize;
+    		    		
+    		if(!running){
+    			running = true;
+    			postOnNextFrame(this);
+    		}
+    	}
+    	
+    	public void cancel(){
+    		if(!running)
+    			return;
+    		
+    		running = false;
+    		removeCallbacks(this);
+    	}
+    	
+    	/**
+    	 * Show menu opened or closed, unless state was changed by someone else while animating.
+    	 */
+    	private void finish(){
+    		setState(getState(isOpen ? ACTION_OPEN : ACTION_CLOSE, target), ACTION_SHOW, isOpen ? target : TARGET_CONTENT, op);
+    	}
+    	
+    	/**
+    	 * Jump to the end of running animation.
+    	 */
+    	public void end(){
+    		if(!running)
+    			return;
+    		
+    		cancel();
+    		applyOffset(end);
+    		finish();
+    	}
+    	
+    	private void applyOffset(int offset){
+    		if(target == TARGET_LEFT || target == TARGET_RIGHT){
+    			mOffsetX = offset;
+    			offsetViewX(mOffsetX);
+    		}
+    		else{
+    			mOffsetY = offset;
+    			offsetViewY(mOffsetY);
+    		}
+    	}
+
+		@Override
+		public void run() {
+			if(!running)
+				return;
+			
+			if(useSpring){
+				runSpring();
+				return;
+			}
+			
+			long time = AnimationUtils.currentAnimationTimeMillis() - startTime;
+			float progress = duration > 0 ? Math.min(1f, (float)time / (float)duration) : 1f;
+			
+			int offset = progress >= 1f ? end : start + (int)((end - start) * interpolator.getInterpolation(progress));
+			// don't let interpolator overshoot the end position
+			offset = Math.max(Math.min(start, end), Math.min(Math.max(start, end), offset));
+			applyOffset(offset);
+			
+			if(offset == end){
+				running = false;
+				finish();
+			}
+			else
+				postOnNextFrame(this);
 		}
 		
-		@Override
-		protected void applyTransformation(float interpolatedTime, Transformation t) {	
-			float value = getInterpolator().getInterpolation(interpolatedTime);
-			switch (mTarget) {
-				case TARGET_LEFT:
-					if(isOpen)
-						mOffsetX = distance > 0 ? Math.min(mLeftMenuStyle.mSize, (int)(start + distance * value)) : Math.max(mLeftMenuStyle.mSize, (int)(start + distance * value));						
-					else
-						mOffsetX = Math.max(0, (int)(start - distance * value));						
-					offsetViewX(mOffsetX);
-					
-					if(isOpen){
-						if(mOffsetX == mLeftMenuStyle.mSize)
-							this.cancel();
-					}
-					else{
-						if(mOffsetX == 0)
-							this.cancel();
-					}
-					break;
-				case TARGET_RIGHT:
-					if(isOpen)
-						mOffsetX = distance > 0 ? Math.max(-mRightMenuStyle.mSize, (int)(start - distance * value)) : Math.min(-mRightMenuStyle.mSize, (int)(start - distance * value));						
-					else
-						mOffsetX = Math.min(0, (int)(start + distance * value));
-					offsetViewX(mOffsetX);
-					
-					if(isOpen){
-						if(mOffsetX == -mRightMenuStyle.mSize)
-							this.cancel();
-					}
-					else{
-						if(mOffsetX == 0)
-							this.cancel();
-					}
-					break;
-				case TARGET_TOP:
-					if(isOpen)
-						mOffsetY = distance > 0 ? Math.min(mTopMenuStyle.mSize, (int)(start + distance * value)) : Math.max(mTopMenuStyle.mSize, (int)(start + distance * value));						
-					else
-						mOffsetY = Math.max(0, (int)(start - distance * value));
-					offsetViewY(mOffsetY);
-					
-					if(isOpen){
-						if(mOffsetY == mTopMenuStyle.mSize)
-							this.cancel();
-					}
-					else{
-						if(mOffsetY == 0)
-							this.cancel();
-					}
-					break;
-				case TARGET_BOTTOM:
-					if(isOpen)
-						mOffsetY = distance > 0 ? Math.max(-mBottomMenuStyle.mSize, (int)(start - distance * value)) : Math.min(-mBottomMenuStyle.mSize, (int)(start - distance * value));						
-					else
-						mOffsetY = Math.min(0, (int)(start + distance * value));
-					offsetViewY(mOffsetY);
-					
-					if(isOpen){
-						if(mOffsetY == -mBottomMenuStyle.mSize)
-							this.cancel();
-					}
-					else{
-						if(mOffsetY == 0)
-							this.cancel();
-					}
-					break;
+		private void runSpring(){
+			long time = AnimationUtils.currentAnimationTimeMillis();
+			boolean finished = spring.advance((time - frameTime) / 1000f);
+			frameTime = time;
+			
+			int offset = finished ? end : Math.round(spring.getPosition());
+			applyOffset(offset);
+			
+			if(finished){
+				running = false;
+				finish();
 			}
+			else
+				postOnNextFrame(this);
 		}
     }
     
-	private class ChangeAlphaAnimation extends Animation{
+	/**
+	 * Frame statistics of a menu drag or animation, see {@link MetricsSink}.
+	 * Times are in nanoseconds.
+	 */
+	public static class FrameStats{
+		
+		final FrameHistogram mHistogram = new FrameHistogram();
+		long mStartTime;
+		long mDuration;
+		long mOffsetTime;
+		int mOffsetCount;
+		long mLayoutTime;
+		int mLayoutCount;
+		long mTouchTime;
+		int mTouchCount;
+		int mAllocationStart;
+		int mAllocationCount;
+		
+		public static int getBucketCount(){
+			return FrameHistogram.BUCKET_BOUNDS.length + 1;
+		}
+		
+		/**
+		 * @return exclusive upper bound of the bucket in milliseconds, Integer.MAX_VALUE for the last bucket.
+		 */
+		public static int getBucketUpperBound(int bucket){
+			return bucket < FrameHistogram.BUCKET_BOUNDS.length ? FrameHistogram.BUCKET_BOUNDS[bucket] : Integer.MAX_VALUE;
+		}
+		
+		/**
+		 * @return number of frame intervals that fall into the bucket.
+		 */
+		public int getFrameCount(int bucket){
+			return mHistogram.getFrameCount(bucket);
+		}
+		
+		/**
+		 * @return number of measured frame intervals.
+		 */
+		public int getFrameCount(){
+			return mHistogram.getFrameCount();
+		}
+		
+		/**
+		 * @return number of 60fps frames missed between drawn frames.
+		 */
+		public int getDroppedFrames(){
+			return mHistogram.getDroppedFrames();
+		}
+		
+		public long getDuration(){
+			return mDuration;
+		}
+		
+		public long getOffsetTime(){
+			return mOffsetTime;
+		}
+		
+		public int getOffsetCount(){
+			return mOffsetCount;
+		}
+		
+		public long getLayoutTime(){
+			return mLayoutTime;
+		}
+		
+		public int getLayoutCount(){
+			return mLayoutCount;
+		}
+		
+		public long getTouchTime(){
+			return mTouchTime;
+		}
+		
+		public int getTouchCount(){
+			return mTouchCount;
+		}
+		
+		/**
+		 * @return number of objects allocated by UI thread. Only counted while allocation counting is started by {@link Debug#startAllocCounting()}.
+		 */
+		public int getAllocationCount(){
+			return mAllocationCount;
+		}
+		
+		void reset(long time){
+			mHistogram.reset();
+			mStartTime = time;
+			mDuration = 0;
+			mOffsetTime = 0;
+			mOffsetCount = 0;
+			mLayoutTime = 0;
+			mLayoutCount = 0;
+			mTouchTime = 0;
+			mTouchCount = 0;
+			mAllocationStart = Debug.getThreadAllocCount();
+			mAllocationCount = 0;
+		}
+		
+		void finish(long time){
+			mDuration = time - mStartTime;
+			mAllocationCount = Debug.getThreadAllocCount() - mAllocationStart;
+		}
+		
+		void onFrame(long time){
+			mHistogram.onFrame(time);
+		}
+		
+		void addOffsetTime(long time){
+			mOffsetTime += time;
+			mOffsetCount++;
+		}
+	}
+	
+	/**
+	 * Describe a side of SlideLayout that a menu slides in from. 
+	 * Offsets of an edge are measured toward its opened position, so they are in range [0, menu size] for all sides.
+	 * An edge also holds the OPs reported for the touch transitions of its menu, so one touch routine serves all sides. 
+	 * The allowed transitions are not kept in a separate table, they're checked where they happen: by the touch routines, 
+	 * the open/close methods and the compare-and-set in {@link SlideLayout#setState(int, int, int, OP)}.
+	 */
+	private class Edge{
+		final int target;
+		final boolean horizontal;
+		final int sign;
+		final OP startDragOp;
+		final OP dragFromMenuOp;
+		final OP flingOp;
+		
+		MenuStyle style;
+		
+		MenuFactory factory;
+		int layoutId;
+		boolean created = false;
+		MenuInflation inflation;
+		int inflatedId = View.NO_ID;
+		
+		View placeholder;
+		View detachedMenu;
+		SparseArray<Parcelable> savedState;
+		
+		Drawable shadow;
+		final Runnable releaseRunnable = new Runnable() {			
+			@Override
+			public void run() {
+				releaseMenu(Edge.this, style.mRetainPolicy);
+			}
+		};
+		
+		Edge(int target, boolean horizontal, int sign, OP startDragOp, OP dragFromMenuOp, OP flingOp){
+			this.target = target;
+			this.horizontal = horizontal;
+			this.sign = sign;
+			this.startDragOp = startDragOp;
+			this.dragFromMenuOp = dragFromMenuOp;
+			this.flingOp = flingOp;
+		}
+		
+		View getMenuView(){
+			return SlideLayout.this.getMenuView(target);
+		}
 		
-		private float alpha;
+		int getViewSize(){
+			return horizontal ? mViewWidth : mViewHeight;
+		}
+		
+		/**
+		 * @return position of active pointer on this edge's axis.
+		 */
+		float position(MotionEvent event){
+			int index = getActivePointerIndex(event);
+			return horizontal ? event.getX(index) : event.getY(index);
+		}
+		
+		float historicalPosition(MotionEvent event, int index, int pos){
+			return horizontal ? event.getHistoricalX(index, pos) : event.getHistoricalY(index, pos);
+		}
+		
+		/**
+		 * @return distance from this side of SlideLayout to the position.
+		 */
+		float distanceFromEdge(float position){
+			return sign > 0 ? position : getViewSize() - position;
+		}
+		
+		int getOffset(){
+			return sign * (horizontal ? mOffsetX : mOffsetY);
+		}
+		
+		void setOffset(int offset){
+			if(horizontal){
+				mOffsetX = sign * offset;
+				offsetViewX(mOffsetX);
+			}
+			else{
+				mOffsetY = sign * offset;
+				offsetViewY(mOffsetY);
+			}
+		}
 		
-		public ChangeAlphaAnimation(float alpha){
-			setFillAfter(true);
-			setDuration(0);
-			setAlpha(alpha);
+		boolean isMenuAbove(){
+			switch (target) {
+				case TARGET_LEFT:
+					return mLeftMenuChild > mContentChild;
+				case TARGET_RIGHT:
+					return mRightMenuChild > mContentChild;
+				case TARGET_TOP:
+					return mTopMenuChild > mContentChild;
+				default:
+					return mBottomMenuChild > mContentChild;
+			}
 		}
+		
+		/**
+		 * @param direction 1 if shadow fades toward the right/bottom, -1 toward the left/top.
+		 */
+		Drawable getShadowDrawable(int direction){
+			if(shadow == null){
+				int id;
+				if(horizontal)
+					id = direction > 0 ? R.drawable.sm_rightshadow : R.drawable.sm_leftshadow;
+				else
+					id = direction > 0 ? R.drawable.sm_bottomshadow : R.drawable.sm_topshadow;
 				
-		public void setAlpha(float alpha){
-			this.alpha = alpha;
+				shadow = getResources().getDrawable(id);
+			}
+			
+			return shadow;
 		}
 		
-		@Override
-	    protected void applyTransformation(float interpolatedTime, Transformation t) {
-	        t.setAlpha(alpha);
-	    }
+		void dispatchOffsetChangedEvent(){
+			float progress = (float)getOffset() / (float)style.mSize;
+			if(horizontal)
+				SlideLayout.this.dispatchOffsetChangedEvent(progress, 0f);
+			else
+				SlideLayout.this.dispatchOffsetChangedEvent(0f, progress);
+		}
+	}
+	
+	private static final Interpolator SMOOTH_INTERPOLATOR = new SmoothInterpolator();
+	
+	// interpolators are stateless, so one instance per resource is shared by all SlideLayouts
+	private static final SparseArray<Interpolator> sInterpolatorCache = new SparseArray<Interpolator>();
+	private static final SparseArray<Interpolator> sLookupInterpolatorCache = new SparseArray<Interpolator>();
+	
+	/**
+	 * @param id interpolator resource id, 0 means the default one.
+	 * @param lookup true to get a {@link LookupTableInterpolator} of it.
+	 */
+	private static Interpolator loadInterpolator(Context context, int id, boolean lookup){
+		synchronized (sInterpolatorCache) {
+			SparseArray<Interpolator> cache = lookup ? sLookupInterpolatorCache : sInterpolatorCache;
+			Interpolator interpolator = cache.get(id);
+			if(interpolator == null){
+				if(lookup)
+					interpolator = new LookupTableInterpolator(loadInterpolator(context, id, false));
+				else
+					interpolator = id == 0 ? SMOOTH_INTERPOLATOR : AnimationUtils.loadInterpolator(context, id);
+				
+				cache.put(id, interpolator);
+			}
+			
+			return interpolator;
+		}
 	}
 	
-	private class SmoothInterpolator implements Interpolator{
+	private static class SmoothInterpolator implements Interpolator{
 
 		@Override
 		public float getInterpolation(float input) {
-			return (float)Math.pow(input - 1, 3) + 1;
+			float t = input - 1f;
+			return t * t * t + 1f;
 		}
 		
 	}
 	
-	private class MenuStyle{
+	/**
+	 * Sample an interpolator once, then evaluate it by linear interpolation between samples.
+	 */
+	private static class LookupTableInterpolator implements Interpolator{
+		
+		private final LookupTable mTable = new LookupTable();
+		
+		public LookupTableInterpolator(Interpolator source){
+			for(int i = 0; i <= LookupTable.SAMPLES; i++)
+				mTable.set(i, source.getInterpolation((float)i / LookupTable.SAMPLES));
+		}
+		
+		@Override
+		public float getInterpolation(float input) {
+			return mTable.get(input);
+		}
+		
+	}
+	
+	/**
+	 * Resolved values of a SlideMenuStyle. A spec returned by {@link #obtain(Context, int)} is cached and shared by all SlideLayouts 
+	 * using the same theme and style, it's only read: MenuStyle copies its values and MenuConfig changes its own copy made by {@link #MenuSpec(MenuSpec)}.
+	 */
+	private static class MenuSpec{
+		
+		private static final WeakHashMap<Resources.Theme, SparseArray<MenuSpec>> sCache = new WeakHashMap<Resources.Theme, SparseArray<MenuSpec>>();
+		
 		boolean mOverDrag = false;
 		
 		int mMenuBorder;
@@ -2011,12 +4009,53 @@ public class SlideLayout extends FrameLayout {
 		
 		int mAnimDuration = 1000;
 		int mInterpolatorId = 0;
+		boolean mLookupInterpolator = false;
+		// set by MenuConfig only
+		Interpolator mInterpolator;
 		
-		int mSize;
+		boolean mHardwareLayer = true;
+		
+		float mSpringStiffness = 0f;
+		float mSpringDamping = 1f;
+		
+		int mRetainPolicy = RETAIN_KEEP;
+		int mRetainTimeout = 30000;
 		
 		float mSlideRatio = 0.5f;
 		
-		public MenuStyle(Context context, int resID){
+		// density dimensions were resolved with
+		int mDensity;
+		
+		/**
+		 * Mutable copy of a spec, cached specs must never be changed.
+		 */
+		MenuSpec(MenuSpec spec){
+			mOverDrag = spec.mOverDrag;
+			mMenuBorder = spec.mMenuBorder;
+			mMenuBorderPercent = spec.mMenuBorderPercent;
+			mMenuOverDragBorder = spec.mMenuOverDragBorder;
+			mMenuOverDragBorderPercent = spec.mMenuOverDragBorderPercent;
+			mMenuShadow = spec.mMenuShadow;
+			mDragEdge = spec.mDragEdge;
+			mTouchSlop = spec.mTouchSlop;
+			mMaxDim = spec.mMaxDim;
+			mVelocitySlop = spec.mVelocitySlop;
+			mCloseEdge = spec.mCloseEdge;
+			mCloseEdgePercent = spec.mCloseEdgePercent;
+			mAnimDuration = spec.mAnimDuration;
+			mInterpolatorId = spec.mInterpolatorId;
+			mLookupInterpolator = spec.mLookupInterpolator;
+			mInterpolator = spec.mInterpolator;
+			mHardwareLayer = spec.mHardwareLayer;
+			mSpringStiffness = spec.mSpringStiffness;
+			mSpringDamping = spec.mSpringDamping;
+			mRetainPolicy = spec.mRetainPolicy;
+			mRetainTimeout = spec.mRetainTimeout;
+			mSlideRatio = spec.mSlideRatio;
+			mDensity = spec.mDensity;
+		}
+		
+		private MenuSpec(Context context, int resID){
 			TypedArray a = context.obtainStyledAttributes(resID, R.styleable.SlideMenuStyle);
 			 
 			for (int i = 0, count = a.getIndexCount(); i < count; i++){
@@ -2077,20 +4116,173 @@ public class SlideLayout extends FrameLayout {
 			        case R.styleable.SlideMenuStyle_sm_animInterpolator:
 			        	mInterpolatorId = a.getResourceId(attr, 0);
 			            break; 
+			        case R.styleable.SlideMenuStyle_sm_lookupInterpolator:
+			        	mLookupInterpolator = a.getBoolean(attr, false);
+			            break; 
+			        case R.styleable.SlideMenuStyle_sm_hardwareLayer:
+			        	mHardwareLayer = a.getBoolean(attr, true);
+			            break; 
+			        case R.styleable.SlideMenuStyle_sm_springStiffness:
+			        	mSpringStiffness = Math.max(0f, a.getFloat(attr, 0f));
+			            break; 
+			        case R.styleable.SlideMenuStyle_sm_springDamping:
+			        	mSpringDamping = Math.max(0.1f, a.getFloat(attr, 1f));
+			            break; 
+			        case R.styleable.SlideMenuStyle_sm_retainPolicy:
+			        	mRetainPolicy = a.getInt(attr, RETAIN_KEEP);
+			            break; 
+			        case R.styleable.SlideMenuStyle_sm_retainTimeout:
+			        	mRetainTimeout = Math.max(0, a.getInt(attr, 30000));
+			            break; 
 			    }
 			}
 			a.recycle();	
+			mDensity = context.getResources().getDisplayMetrics().densityDpi;
 		}
 		
-		public Interpolator getInterpolator(){
-			if(mInterpolatorId == 0){
-				if(mInterpolator == null)
-					mInterpolator = new SmoothInterpolator();
+		/**
+		 * Get the resolved style from cache, parse it only the first time a theme uses it or after density changed.
+		 */
+		static MenuSpec obtain(Context context, int resID){
+			Resources.Theme theme = context.getTheme();
+			int density = context.getResources().getDisplayMetrics().densityDpi;
 			
-				return mInterpolator;
+			synchronized (sCache) {
+				SparseArray<MenuSpec> specs = sCache.get(theme);
+				if(specs == null){
+					specs = new SparseArray<MenuSpec>();
+					sCache.put(theme, specs);
+				}
+				
+				MenuSpec spec = specs.get(resID);
+				if(spec == null || spec.mDensity != density){
+					spec = new MenuSpec(context, resID);
+					specs.put(resID, spec);
+				}
+				
+				return spec;
 			}
-			else
-				return AnimationUtils.loadInterpolator(getContext(), mInterpolatorId);			
+		}
+	}
+	
+	/**
+	 * Values of a SlideMenuStyle used by one menu. Resolved values are copied from the shared {@link MenuSpec},
+	 * the sizes depending on SlideLayout's size are computed per instance.
+	 */
+	private class MenuStyle{
+		boolean mOverDrag;
+		
+		int mMenuBorder;
+		float mMenuBorderPercent;
+		
+		int mMenuOverDragBorder;
+		float mMenuOverDragBorderPercent;
+						
+		int mMenuShadow;	
+		int mDragEdge;			
+		int mTouchSlop;		
+		float mMaxDim;		
+		float mVelocitySlop;
+		
+		int mCloseEdge;
+		float mCloseEdgePercent;
+		
+		int mAnimDuration;
+		int mInterpolatorId;
+		boolean mLookupInterpolator;
+		Interpolator mAnimInterpolator;
+		
+		boolean mHardwareLayer;
+		
+		float mSpringStiffness;
+		float mSpringDamping;
+		
+		int mRetainPolicy;
+		int mRetainTimeout;
+		
+		int mSize;
+		
+		float mSlideRatio;
+		
+		// inputs of the last geometry computation
+		private int mGeometryViewSize = -1;
+		private int mGeometryPercentBase = -1;
+		
+		public MenuStyle(Context context, int resID){
+			this(MenuSpec.obtain(context, resID));
+		}
+		
+		public MenuStyle(MenuSpec spec){
+			apply(spec);
+		}
+		
+		/**
+		 * Copy values of a spec.
+		 * @return true if sizes depending on SlideLayout's size must be computed again.
+		 */
+		boolean apply(MenuSpec spec){
+			// values given in percent were computed from SlideLayout's size, so only compare them when given in pixels
+			boolean geometryChanged = mMenuBorderPercent != spec.mMenuBorderPercent || (spec.mMenuBorderPercent < 0f && mMenuBorder != spec.mMenuBorder) 
+					|| mMenuOverDragBorderPercent != spec.mMenuOverDragBorderPercent || (spec.mMenuOverDragBorderPercent < 0f && mMenuOverDragBorder != spec.mMenuOverDragBorder)
+					|| mCloseEdgePercent != spec.mCloseEdgePercent || (spec.mCloseEdgePercent < 0f && mCloseEdge != spec.mCloseEdge);
+			
+			if(geometryChanged){
+				mMenuBorder = spec.mMenuBorder;
+				mMenuBorderPercent = spec.mMenuBorderPercent;
+				mMenuOverDragBorder = spec.mMenuOverDragBorder;
+				mMenuOverDragBorderPercent = spec.mMenuOverDragBorderPercent;
+				mCloseEdge = spec.mCloseEdge;
+				mCloseEdgePercent = spec.mCloseEdgePercent;
+				mGeometryViewSize = -1;
+			}
+			
+			mOverDrag = spec.mOverDrag;
+			mMenuShadow = spec.mMenuShadow;
+			mDragEdge = spec.mDragEdge;
+			mTouchSlop = spec.mTouchSlop;
+			mMaxDim = spec.mMaxDim;
+			mVelocitySlop = spec.mVelocitySlop;
+			mAnimDuration = spec.mAnimDuration;
+			mInterpolatorId = spec.mInterpolatorId;
+			mLookupInterpolator = spec.mLookupInterpolator;
+			mHardwareLayer = spec.mHardwareLayer;
+			mSpringStiffness = spec.mSpringStiffness;
+			mSpringDamping = spec.mSpringDamping;
+			mRetainPolicy = spec.mRetainPolicy;
+			mRetainTimeout = spec.mRetainTimeout;
+			mSlideRatio = spec.mSlideRatio;
+			mAnimInterpolator = spec.mInterpolator;
+			
+			return geometryChanged;
+		}
+		
+		/**
+		 * Compute sizes that depend on SlideLayout's size, only when it changed.
+		 * @param viewSize SlideLayout's size in menu's direction.
+		 * @param percentBase the size border percents are relative to.
+		 */
+		void updateGeometry(int viewSize, int percentBase){
+			if(mGeometryViewSize == viewSize && mGeometryPercentBase == percentBase)
+				return;
+			
+			mGeometryViewSize = viewSize;
+			mGeometryPercentBase = percentBase;
+			
+			if(mMenuBorderPercent >= 0f)
+				mMenuBorder = (int)(percentBase * mMenuBorderPercent);
+			if(mMenuOverDragBorderPercent >= 0f)
+				mMenuOverDragBorder = (int)(percentBase * mMenuOverDragBorderPercent);
+			
+			mSize = viewSize - mMenuBorder;
+			if(mCloseEdgePercent >= 0f)
+				mCloseEdge = (int)(mSize * mCloseEdgePercent);
+		}
+		
+		public Interpolator getInterpolator(){
+			if(mAnimInterpolator == null)
+				mAnimInterpolator = loadInterpolator(getContext(), mInterpolatorId, mLookupInterpolator);
+			
+			return mAnimInterpolator;
 		}
 	}
 }
\ No newline at end of file
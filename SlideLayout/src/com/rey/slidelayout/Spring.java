@@ -0,0 +1,79 @@
+package com.rey.slidelayout;
+
+/**
+ * Damped spring of an unit mass moving a position toward its rest position. 
+ * Plain Java, so it's driven by SlideLayout's animator on device and by the benchmark on a desktop JVM.
+ */
+final class Spring {
+	
+	// integrate in fixed steps, so result doesn't depend on frame rate
+	static final float STEP = 1f / 240f;
+	// don't integrate more than a few frames at once after a stall
+	static final float MAX_FRAME = 1f / 15f;
+	static final float REST_DISTANCE = 0.5f;
+	static final float REST_VELOCITY = 10f;
+	
+	private float mPosition;
+	private float mVelocity;
+	private float mEnd;
+	private float mStiffness;
+	private float mDamping;
+	private float mMin;
+	private float mMax;
+	
+	/**
+	 * @param velocity velocity of position in units per second
+	 * @param dampingRatio 1 for critical damping, less to let it bounce
+	 * @param min lowest position spring can reach, it stops there
+	 * @param max highest position spring can reach, it stops there
+	 */
+	void start(float position, float velocity, float end, float stiffness, float dampingRatio, float min, float max){
+		mPosition = position;
+		mVelocity = velocity;
+		mEnd = end;
+		mStiffness = stiffness;
+		// critical damping coefficient of an unit mass is 2 * sqrt(stiffness)
+		mDamping = 2f * dampingRatio * (float)Math.sqrt(stiffness);
+		mMin = min;
+		mMax = max;
+	}
+	
+	/**
+	 * Advance spring by the time passed since last frame.
+	 * @param dt time in seconds
+	 * @return true if spring came to rest at its end position.
+	 */
+	boolean advance(float dt){
+		dt = Math.min(MAX_FRAME, dt);
+		
+		while(dt > 0f){
+			float step = Math.min(STEP, dt);
+			float acceleration = -mStiffness * (mPosition - mEnd) - mDamping * mVelocity;
+			mVelocity += acceleration * step;
+			mPosition += mVelocity * step;
+			dt -= step;
+			
+			if(mPosition < mMin || mPosition > mMax){
+				mPosition = Math.max(mMin, Math.min(mMax, mPosition));
+				mVelocity = 0f;
+			}
+		}
+		
+		if(Math.abs(mPosition - mEnd) < REST_DISTANCE && Math.abs(mVelocity) < REST_VELOCITY){
+			mPosition = mEnd;
+			mVelocity = 0f;
+			return true;
+		}
+		
+		return false;
+	}
+	
+	float getPosition(){
+		return mPosition;
+	}
+	
+	float getVelocity(){
+		return mVelocity;
+	}
+	
+}
@@ -0,0 +1,12 @@
+#!/bin/sh
+# Build the plain Java engines of SlideLayout with the benchmark and print its JSON results to stdout.
+set -e
+DIR=$(cd "$(dirname "$0")" && pwd)
+LIB="$DIR/../SlideLayout/src/com/rey/slidelayout"
+OUT="$DIR/bin"
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+javac -nowarn -d "$OUT" "$LIB/Spring.java" "$LIB/LookupTable.java" "$LIB/FrameHistogram.java" "$LIB/DragAccumulator.java" \
+	"$DIR"/src/com/rey/slidelayout/*.java
+java -cp "$OUT" com.rey.slidelayout.SlideLayoutBenchmark
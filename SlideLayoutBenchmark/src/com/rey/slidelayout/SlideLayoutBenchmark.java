@@ -0,0 +1,172 @@
+package com.rey.slidelayout;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measure the plain Java engines behind SlideLayout's drag and animation frames on a desktop JVM, and print the results as JSON.
+ * Paths bound to Android views (touch dispatch, offsetting and laying out children) are measured on device by {@link SlideLayout.MetricsSink}.
+ */
+public class SlideLayoutBenchmark {
+	
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 15;
+	
+	private static final int MENU_SIZE = 600;
+	private static final float FRAME = 1f / 60f;
+	
+	// keeps results alive, so JIT doesn't drop the measured work
+	private static float sSink;
+	
+	private interface Case{
+		
+		/**
+		 * Run the measured work once.
+		 * @return number of operations done
+		 */
+		public int run();
+		
+	}
+	
+	public static void main(String[] args){
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"jvm\": \"").append(System.getProperty("java.vm.name")).append(' ').append(System.getProperty("java.version")).append("\",\n");
+		json.append("  \"rounds\": ").append(ROUNDS).append(",\n");
+		json.append("  \"results\": [\n");
+		
+		measure(json, "spring_settle_frame", new Case() {			
+			private final Spring mSpring = new Spring();
+			
+			@Override
+			public int run() {
+				int frames = 0;
+				for(int i = 0; i < 100; i++){
+					mSpring.start(MENU_SIZE / 2, 3000f, MENU_SIZE, 200f, 0.7f, 0, MENU_SIZE * 1.2f);
+					do{
+						frames++;
+					} while(!mSpring.advance(FRAME));
+					sSink += mSpring.getPosition();
+				}
+				return frames;
+			}
+		}, false);
+		
+		final LookupTable table = new LookupTable();
+		for(int i = 0; i <= LookupTable.SAMPLES; i++)
+			table.set(i, decelerate((float)i / LookupTable.SAMPLES));
+		
+		measure(json, "lookup_interpolation", new Case() {			
+			@Override
+			public int run() {
+				float sum = 0f;
+				for(int i = 0; i < 100000; i++)
+					sum += table.get(i / 100000f);
+				sSink += sum;
+				return 100000;
+			}
+		}, false);
+		
+		measure(json, "direct_interpolation", new Case() {			
+			@Override
+			public int run() {
+				float sum = 0f;
+				for(int i = 0; i < 100000; i++)
+					sum += decelerate(i / 100000f);
+				sSink += sum;
+				return 100000;
+			}
+		}, false);
+		
+		measure(json, "frame_histogram_frame", new Case() {			
+			private final FrameHistogram mHistogram = new FrameHistogram();
+			
+			@Override
+			public int run() {
+				mHistogram.reset();
+				long time = 1L;
+				for(int i = 0; i < 100000; i++){
+					// every 16th frame is late by one or two frames
+					time += (i & 15) == 0 ? FrameHistogram.FRAME_INTERVAL * (2 + (i & 16) / 16) : FrameHistogram.FRAME_INTERVAL;
+					mHistogram.onFrame(time);
+				}
+				sSink += mHistogram.getDroppedFrames();
+				return 100000;
+			}
+		}, false);
+		
+		measure(json, "drag_accumulation_sample", new Case() {			
+			private final DragAccumulator mAccumulator = new DragAccumulator();
+			
+			@Override
+			public int run() {
+				int samples = 0;
+				mAccumulator.reset();
+				mAccumulator.sync(0);
+				// a drag stream going back and forth past both borders, 4 batched samples per move event
+				for(int event = 0; event < 25000; event++){
+					for(int i = 0; i < 4; i++){
+						mAccumulator.move((event / 200) % 2 == 0 ? 1.7f : -1.7f, MENU_SIZE);
+						samples++;
+					}
+					// one frame every 2 events
+					if((event & 1) == 1)
+						mAccumulator.sync(mAccumulator.getOffset());
+				}
+				sSink += mAccumulator.getOffset();
+				return samples;
+			}
+		}, true);
+		
+		json.append("  ]\n");
+		json.append("}");
+		System.out.println(json);
+		
+		if(Float.isNaN(sSink))
+			System.err.println(sSink);
+	}
+	
+	/**
+	 * Same curve as android.view.animation.DecelerateInterpolator with factor 1.5.
+	 */
+	private static float decelerate(float input){
+		return (float)(1.0 - Math.pow(1.0 - input, 3.0));
+	}
+	
+	private static void measure(StringBuilder json, String name, Case c, boolean last){
+		for(int i = 0; i < WARMUP_ROUNDS; i++)
+			c.run();
+		
+		double[] times = new double[ROUNDS];
+		long bytes = 0;
+		long ops = 0;
+		
+		for(int i = 0; i < ROUNDS; i++){
+			long allocated = getAllocatedBytes();
+			long time = System.nanoTime();
+			int count = c.run();
+			times[i] = (double)(System.nanoTime() - time) / count;
+			if(allocated >= 0)
+				bytes += getAllocatedBytes() - allocated;
+			ops += count;
+		}
+		
+		Arrays.sort(times);
+		json.append(String.format(Locale.US, "    {\"name\": \"%s\", \"ns_per_op_median\": %.3f, \"ns_per_op_min\": %.3f, \"bytes_per_op\": %s}%s\n",
+				name, times[ROUNDS / 2], times[0], getAllocatedBytes() < 0 ? "null" : String.format(Locale.US, "%.4f", (double)bytes / ops), last ? "" : ","));
+	}
+	
+	/**
+	 * @return bytes allocated by current thread, -1 if JVM can't tell.
+	 */
+	private static long getAllocatedBytes(){
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		
+		return -1;
+	}
+	
+}
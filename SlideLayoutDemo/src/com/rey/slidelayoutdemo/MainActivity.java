@@ -1,10 +1,14 @@
 package com.rey.slidelayoutdemo;
 
 import android.app.Activity;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
+import android.os.Debug;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.AdapterView;
 import android.widget.BaseAdapter;
 import android.widget.Button;
@@ -17,6 +21,8 @@ import com.rey.slidelayout.SlideLayout;
 
 public class MainActivity extends Activity implements SlideLayout.OnStateChangedListener, AdapterView.OnItemClickListener {
 
+	static final String TAG = "SlideLayoutDemo";
+
 	SlideLayout sl_top;
 	SlideLayout sl_bottom;
 	SlideLayout sl_activity;
@@ -48,6 +54,57 @@ public class MainActivity extends Activity implements SlideLayout.OnStateChanged
 		initTopSlideLayout();		
 		initBottomSlideLayout();		
 		initActivitySlideLayout();
+		
+		if((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0)
+			initMetrics();
+	}
+	
+	/**
+	 * Log what each menu drag and open/close animation cost, see "Verifying" in README.
+	 * Opening and closing a menu shouldn't allocate anything in SlideLayout, so allocations stay at what the menu's own views do.
+	 */
+	private void initMetrics(){
+		Debug.startAllocCounting();
+		
+		SlideLayout.MetricsSink sink = new SlideLayout.MetricsSink() {
+			
+			@Override
+			public void onFrameStats(View v, int type, SlideLayout.FrameStats stats) {
+				Log.d(TAG, (type == SlideLayout.METRICS_GESTURE ? "drag" : "animation") 
+						+ ": frames=" + stats.getFrameCount() 
+						+ " dropped=" + stats.getDroppedFrames() 
+						+ " allocations=" + stats.getAllocationCount());
+			}
+			
+		};
+		
+		sl_top.setMetricsSink(sink);
+		sl_bottom.setMetricsSink(sink);
+		sl_activity.setMetricsSink(sink);
+		
+		logLayoutPasses(sl_top, "top");
+		logLayoutPasses(sl_activity, "activity");
+	}
+	
+	/**
+	 * Log the layout passes SlideLayout took in each traversal that laid it out. 
+	 * Laying out a new size (first layout, or after rotation) should take one pass, not a second one caused by resizing menus.
+	 */
+	private void logLayoutPasses(final SlideLayout sl, final String name){
+		sl.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+			
+			int passes = 0;
+			
+			@Override
+			public void onGlobalLayout() {
+				int count = sl.getLayoutPassCount();
+				if(count != passes)
+					Log.d(TAG, name + " layout: " + sl.getWidth() + "x" + sl.getHeight() + " passes=" + (count - passes));
+				
+				passes = count;
+			}
+			
+		});
 	}
 	
 	private void initActivitySlideLayout(){